@@ -0,0 +1,151 @@
+package com.whipowill.beastmaster.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.whipowill.beastmaster.BeastConfig;
+import com.whipowill.beastmaster.BeastMasterMod;
+import com.whipowill.beastmaster.NbtSnapshot;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.SaddledComponent;
+import net.minecraft.entity.data.DataTracker;
+import net.minecraft.entity.data.TrackedData;
+import net.minecraft.entity.passive.PigEntity;
+import net.minecraft.entity.passive.TameableEntity;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtList;
+import sun.misc.Unsafe;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Random;
+import java.util.UUID;
+
+// Vanilla registries and a default config, without starting a server. Fabric isn't running here, so
+// mixins are not applied: benchmarks stick to code paths that don't go through the duck interfaces.
+final class BenchmarkBootstrap {
+    private static boolean initialized = false;
+
+    private BenchmarkBootstrap() {
+    }
+
+    static synchronized void init() {
+        if (initialized) return;
+
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+
+        BeastMasterMod.CONFIG = new BeastConfig().withResolvedRoles();
+        initialized = true;
+    }
+
+    // An entity that was allocated but never constructed or spawned: MobEntity's constructor needs a world.
+    // Only the type and the tracked data (all at their defaults) are set up, which is everything the
+    // classification and ownership checks read. Nothing that touches the world may be called on it.
+    @SuppressWarnings("unchecked")
+    static <T extends Entity> T allocateEntity(Class<T> entityClass, EntityType<? super T> type) {
+        try {
+            T entity = (T) unsafe().allocateInstance(entityClass);
+            set(Entity.class, entity, "type", type);
+            DataTracker dataTracker = new DataTracker(entity);
+            set(Entity.class, entity, "dataTracker", dataTracker);
+            set(Entity.class, entity, "passengerList", ImmutableList.of());
+            Method initDataTracker = Entity.class.getDeclaredMethod("initDataTracker");
+            initDataTracker.setAccessible(true);
+            initDataTracker.invoke(entity);
+
+            if (entity instanceof PigEntity) {
+                set(PigEntity.class, entity, "saddledComponent", new SaddledComponent(dataTracker,
+                    (TrackedData<Integer>) get(PigEntity.class, null, "BOOST_TIME"),
+                    (TrackedData<Boolean>) get(PigEntity.class, null, "SADDLED")));
+            }
+            return entity;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't allocate " + entityClass.getSimpleName(), e);
+        }
+    }
+
+    // TameableEntity.setTamed also updates attributes, which an allocated entity doesn't have
+    @SuppressWarnings("unchecked")
+    static void setTamed(TameableEntity entity, UUID owner) throws ReflectiveOperationException {
+        entity.getDataTracker().set((TrackedData<Byte>) get(TameableEntity.class, null, "TAMEABLE_FLAGS"), (byte) 4);
+        entity.setOwnerUuid(owner);
+    }
+
+    static void setSaddled(PigEntity pig) throws ReflectiveOperationException {
+        ((SaddledComponent) get(PigEntity.class, pig, "saddledComponent")).setSaddled(true);
+    }
+
+    private static Unsafe unsafe() throws ReflectiveOperationException {
+        Field field = Unsafe.class.getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        return (Unsafe) field.get(null);
+    }
+
+    private static Object get(Class<?> owner, Object instance, String name) throws ReflectiveOperationException {
+        Field field = owner.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(instance);
+    }
+
+    private static void set(Class<?> owner, Object instance, String name, Object value) throws ReflectiveOperationException {
+        Field field = owner.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(instance, value);
+    }
+
+    // Registry root in the same layout PackManager.writeNbt produces
+    static NbtCompound registryNbt(int records, UUID[] owners, Random random) throws IOException {
+        NbtSnapshot snapshot = NbtSnapshot.of(sampleEntityNbt());
+        NbtList entities = new NbtList();
+        for (int i = 0; i < records; i++) {
+            NbtCompound entry = new NbtCompound();
+            entry.putUuid("entityUUID", new UUID(random.nextLong(), random.nextLong()));
+            entry.putUuid("ownerUUID", owners[i % owners.length]);
+            entry.putString("dimension", "minecraft:overworld");
+            entry.putDouble("x", random.nextInt(20000) - 10000);
+            entry.putDouble("y", 64);
+            entry.putDouble("z", random.nextInt(20000) - 10000);
+            entry.putBoolean("isPet", random.nextBoolean());
+            entry.putByteArray("entityNbtDeflated", snapshot.getBytes());
+            entry.putInt("entityNbtSize", snapshot.getRawSize());
+            if (random.nextInt(4) != 0) {
+                entry.putString("customName", "Companion " + i);
+            }
+            entities.add(entry);
+        }
+
+        NbtCompound root = new NbtCompound();
+        root.putBoolean("legacyMigrated", true);
+        root.put("beastmaster_entities", entities);
+        return root;
+    }
+
+    // Roughly what a tamed wolf's saveNbt looks like
+    static NbtCompound sampleEntityNbt() {
+        NbtCompound nbt = new NbtCompound();
+        nbt.putString("id", "minecraft:wolf");
+        nbt.putUuid("UUID", UUID.randomUUID());
+        nbt.putUuid("Owner", UUID.randomUUID());
+        nbt.putFloat("Health", 20.0f);
+        nbt.putBoolean("Sitting", false);
+        nbt.putString("CustomName", "{\"text\":\"Rex\"}");
+        NbtList pos = new NbtList();
+        for (int i = 0; i < 3; i++) {
+            pos.add(net.minecraft.nbt.NbtDouble.of(i * 100.5));
+        }
+        nbt.put("Pos", pos);
+        NbtList attributes = new NbtList();
+        for (String name : new String[] {"minecraft:generic.max_health", "minecraft:generic.movement_speed",
+                "minecraft:generic.attack_damage", "minecraft:generic.follow_range"}) {
+            NbtCompound attribute = new NbtCompound();
+            attribute.putString("Name", name);
+            attribute.putDouble("Base", 20.0);
+            attributes.add(attribute);
+        }
+        nbt.put("Attributes", attributes);
+        return nbt;
+    }
+}
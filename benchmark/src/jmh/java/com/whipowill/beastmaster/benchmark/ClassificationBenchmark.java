@@ -0,0 +1,115 @@
+package com.whipowill.beastmaster.benchmark;
+
+import com.whipowill.beastmaster.BeastConfig;
+import com.whipowill.beastmaster.BeastMasterMod;
+import com.whipowill.beastmaster.EntityRoles;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.mob.SkeletonEntity;
+import net.minecraft.entity.mob.ZombieEntity;
+import net.minecraft.entity.passive.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Checks behind the damage hook, the tick handlers and the commands, over a mix of companions (tamed and
+// not) and the mobs they usually stand next to. The per-entity checks run on allocated, never spawned
+// entities (see BenchmarkBootstrap.allocateEntity); the type-only checks are what the region scanner uses.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClassificationBenchmark {
+    private static final int ENTITIES = 12;
+
+    private EntityType<?>[] types;
+    private Entity[] entities;
+    private EntityRoles roles;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        BenchmarkBootstrap.init();
+        types = List.of(EntityType.WOLF, EntityType.CAT, EntityType.PARROT, EntityType.HORSE,
+            EntityType.LLAMA, EntityType.PIG, EntityType.ZOMBIE, EntityType.COW, EntityType.SHEEP,
+            EntityType.SKELETON, EntityType.VILLAGER, EntityType.CHICKEN).toArray(new EntityType<?>[0]);
+        BeastConfig config = BeastMasterMod.CONFIG;
+        roles = EntityRoles.build(config.supportedPetEntities, config.supportedMountEntities);
+
+        UUID owner = UUID.randomUUID();
+        WolfEntity tamedWolf = BenchmarkBootstrap.allocateEntity(WolfEntity.class, EntityType.WOLF);
+        BenchmarkBootstrap.setTamed(tamedWolf, owner);
+        CatEntity tamedCat = BenchmarkBootstrap.allocateEntity(CatEntity.class, EntityType.CAT);
+        BenchmarkBootstrap.setTamed(tamedCat, owner);
+        HorseEntity tamedHorse = BenchmarkBootstrap.allocateEntity(HorseEntity.class, EntityType.HORSE);
+        tamedHorse.setTame(true);
+        tamedHorse.setOwnerUuid(owner);
+        PigEntity saddledPig = BenchmarkBootstrap.allocateEntity(PigEntity.class, EntityType.PIG);
+        BenchmarkBootstrap.setSaddled(saddledPig);
+
+        entities = new Entity[] {
+            tamedWolf,
+            tamedCat,
+            BenchmarkBootstrap.allocateEntity(ParrotEntity.class, EntityType.PARROT),
+            tamedHorse,
+            BenchmarkBootstrap.allocateEntity(LlamaEntity.class, EntityType.LLAMA),
+            saddledPig,
+            BenchmarkBootstrap.allocateEntity(ZombieEntity.class, EntityType.ZOMBIE),
+            BenchmarkBootstrap.allocateEntity(CowEntity.class, EntityType.COW),
+            BenchmarkBootstrap.allocateEntity(SheepEntity.class, EntityType.SHEEP),
+            BenchmarkBootstrap.allocateEntity(SkeletonEntity.class, EntityType.SKELETON),
+            BenchmarkBootstrap.allocateEntity(VillagerEntity.class, EntityType.VILLAGER),
+            BenchmarkBootstrap.allocateEntity(ChickenEntity.class, EntityType.CHICKEN)
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES)
+    public void isSupportedPet(Blackhole blackhole) {
+        for (Entity entity : entities) {
+            blackhole.consume(BeastConfig.isSupportedPet(entity));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES)
+    public void isSupportedMount(Blackhole blackhole) {
+        for (Entity entity : entities) {
+            blackhole.consume(BeastConfig.isSupportedMount(entity));
+        }
+    }
+
+    // Class-level resolver dispatch plus the owner read
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES)
+    public void isOwned(Blackhole blackhole) {
+        for (Entity entity : entities) {
+            blackhole.consume(BeastMasterMod.isOwned(entity));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES)
+    public void isSupportedPetType(Blackhole blackhole) {
+        for (EntityType<?> type : types) {
+            blackhole.consume(BeastConfig.isSupportedPetType(type));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES)
+    public void isSupportedMountType(Blackhole blackhole) {
+        for (EntityType<?> type : types) {
+            blackhole.consume(BeastConfig.isSupportedMountType(type));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES)
+    public void rolesLookup(Blackhole blackhole) {
+        for (EntityType<?> type : types) {
+            blackhole.consume(roles.isPet(type) || roles.isMount(type));
+        }
+    }
+}
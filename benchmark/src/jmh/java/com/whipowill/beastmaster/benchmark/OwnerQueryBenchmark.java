@@ -0,0 +1,93 @@
+package com.whipowill.beastmaster.benchmark;
+
+import com.whipowill.beastmaster.PackManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Owner lookups over 100k records. "zipf" gives a few owners most of the companions, like a server
+// with a handful of breeders; queries are drawn from the same distribution.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OwnerQueryBenchmark {
+    private static final int RECORDS = 100_000;
+    private static final int OWNERS = 1_000;
+    private static final int QUERIES = 4096;
+
+    @Param({"uniform", "zipf"})
+    public String distribution;
+
+    private PackManager manager;
+    private UUID[] queries;
+    private int next = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkBootstrap.init();
+        Random random = new Random(42);
+        UUID[] owners = new UUID[OWNERS];
+        for (int i = 0; i < OWNERS; i++) {
+            owners[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+
+        // Owner per record, in the order registryNbt assigns them
+        UUID[] recordOwners = new UUID[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            recordOwners[i] = owners[pickOwner(random)];
+        }
+        manager = PackManager.fromNbt(BenchmarkBootstrap.registryNbt(RECORDS, recordOwners, random));
+
+        queries = new UUID[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = owners[pickOwner(random)];
+        }
+    }
+
+    private int pickOwner(Random random) {
+        if (distribution.equals("uniform")) {
+            return random.nextInt(OWNERS);
+        }
+        // Zipf with s = 1 by inverse transform over the harmonic series
+        double target = random.nextDouble() * harmonic(OWNERS);
+        double sum = 0;
+        for (int i = 0; i < OWNERS; i++) {
+            sum += 1.0 / (i + 1);
+            if (sum >= target) return i;
+        }
+        return OWNERS - 1;
+    }
+
+    private static double harmonic(int n) {
+        double sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += 1.0 / i;
+        }
+        return sum;
+    }
+
+    private UUID nextOwner() {
+        UUID owner = queries[next];
+        next = (next + 1) & (QUERIES - 1);
+        return owner;
+    }
+
+    @Benchmark
+    public List<PackManager.EntityData> getPetsByOwner() {
+        return manager.getPetsByOwner(nextOwner());
+    }
+
+    @Benchmark
+    public List<PackManager.EntityData> getMountsByOwner() {
+        return manager.getMountsByOwner(nextOwner());
+    }
+
+    @Benchmark
+    public List<PackManager.EntityData> findByNamePrefix() {
+        return manager.findByName(nextOwner(), true, "Companion 1*");
+    }
+}
@@ -0,0 +1,49 @@
+package com.whipowill.beastmaster.benchmark;
+
+import com.whipowill.beastmaster.PackManager;
+import net.minecraft.nbt.NbtCompound;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Full registry load and save through the vanilla PersistentState path
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RegistryBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int records;
+
+    private NbtCompound saved;
+    private PackManager loaded;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkBootstrap.init();
+        Random random = new Random(42);
+        UUID[] owners = new UUID[Math.max(1, records / 50)];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        saved = BenchmarkBootstrap.registryNbt(records, owners, random);
+        loaded = PackManager.fromNbt(saved);
+    }
+
+    @Benchmark
+    public PackManager fromNbt() {
+        return PackManager.fromNbt(saved);
+    }
+
+    @Benchmark
+    public NbtCompound writeNbt() {
+        return loaded.writeNbt(new NbtCompound());
+    }
+
+    @Benchmark
+    public NbtCompound roundTrip() {
+        return PackManager.fromNbt(saved).writeNbt(new NbtCompound());
+    }
+}
@@ -0,0 +1,98 @@
+package com.whipowill.beastmaster.benchmark;
+
+import com.whipowill.beastmaster.NbtSnapshot;
+import com.whipowill.beastmaster.PackManager;
+import net.minecraft.entity.EntityType;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.world.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// What storeEntityNbt pays to store and whistling pays to restore a snapshot, minus saveNbt itself:
+// mobs can't be constructed without a world, so the NBT is built to match what saveNbt produces.
+// The store benchmarks go through PackManager.store, once with an unchanged fingerprint (the skip
+// every proximity save and interaction hopes for) and once with a new one each time (a full write).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnapshotBenchmark {
+    private NbtCompound wolfNbt;
+    private NbtCompound horseNbt;
+    private NbtSnapshot wolfSnapshot;
+    private NbtSnapshot horseSnapshot;
+    private PackManager manager;
+    private PackManager.Observation unchanged;
+    private final UUID wolfUuid = UUID.randomUUID();
+    private final UUID owner = UUID.randomUUID();
+    private long fingerprint = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkBootstrap.init();
+        wolfNbt = BenchmarkBootstrap.sampleEntityNbt();
+
+        // A saddled horse with armor carries a few more compounds than a wolf
+        horseNbt = BenchmarkBootstrap.sampleEntityNbt();
+        horseNbt.putString("id", "minecraft:horse");
+        horseNbt.putBoolean("Tame", true);
+        horseNbt.putInt("Variant", 513);
+        horseNbt.putInt("Temper", 0);
+        horseNbt.put("SaddleItem", item("minecraft:saddle"));
+        horseNbt.put("ArmorItem", item("minecraft:diamond_horse_armor"));
+        horseNbt.put("Items", new NbtList());
+
+        wolfSnapshot = NbtSnapshot.of(wolfNbt);
+        horseSnapshot = NbtSnapshot.of(horseNbt);
+
+        manager = new PackManager();
+        unchanged = observation(-1);
+        manager.store(unchanged);
+    }
+
+    // The NBT supplier hands out the same compound; the real one runs saveNbt
+    private PackManager.Observation observation(long fingerprint) {
+        return new PackManager.Observation(wolfUuid, owner, World.OVERWORLD, 100.5, 64, -20.5, true, fingerprint,
+            "Rex", EntityType.WOLF, () -> wolfNbt);
+    }
+
+    private static NbtCompound item(String id) {
+        NbtCompound item = new NbtCompound();
+        item.putString("id", id);
+        item.putByte("Count", (byte) 1);
+        return item;
+    }
+
+    @Benchmark
+    public NbtSnapshot snapshotWolf() throws IOException {
+        return NbtSnapshot.of(wolfNbt);
+    }
+
+    @Benchmark
+    public NbtSnapshot snapshotHorse() throws IOException {
+        return NbtSnapshot.of(horseNbt);
+    }
+
+    @Benchmark
+    public NbtCompound inflateWolf() throws IOException {
+        return wolfSnapshot.inflate();
+    }
+
+    @Benchmark
+    public NbtCompound inflateHorse() throws IOException {
+        return horseSnapshot.inflate();
+    }
+
+    @Benchmark
+    public boolean storeUnchanged() throws IOException {
+        return manager.store(unchanged);
+    }
+
+    @Benchmark
+    public boolean storeChanged() throws IOException {
+        return manager.store(observation(++fingerprint));
+    }
+}
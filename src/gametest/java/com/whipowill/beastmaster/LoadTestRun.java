@@ -0,0 +1,315 @@
+package com.whipowill.beastmaster;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.entity.damage.DamageSource;
+import net.minecraft.entity.passive.HorseBaseEntity;
+import net.minecraft.entity.passive.TameableEntity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.test.GameTestException;
+import net.minecraft.test.TestContext;
+import net.minecraft.text.Text;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+// One load test scenario. Simulated owners join around the test area and the same population of
+// wolves, cats, parrots, horses and llamas, tamed by them, is spawned twice: first with the mod's
+// handlers switched off as the baseline, then with them on, so the companions get registered on load.
+// Each population settles and then runs the scenario while whole ticks are timed, and the percentiles
+// of both runs are written to loadtest-<scenario>.txt in the game test run directory. The commands of
+// the list, find and whistle scenarios are the mod's own work, so the baseline only idles for those.
+class LoadTestRun {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BeastMaster");
+    static final int SETTLE_TICKS = 100;
+    static final int RUN_TICKS = 400;
+    // Set through -PloadtestOwners and -PloadtestPerOwner, see the gametest run in build.gradle
+    private static final int OWNERS = Math.max(1, Integer.getInteger("beastmaster.loadtest.owners", 8));
+    private static final int PER_OWNER = Math.max(1, Integer.getInteger("beastmaster.loadtest.perOwner", 25));
+
+    private static final EntityType<?>[] POPULATION_TYPES = {
+        EntityType.WOLF, EntityType.CAT, EntityType.PARROT, EntityType.HORSE, EntityType.LLAMA
+    };
+
+    enum Scenario {
+        IDLE("idle"),
+        REGEN("regen"),
+        DAMAGE("damage storm"),
+        LIST("list storm"),
+        FIND("find"),
+        WHISTLE("whistle");
+
+        final String label;
+
+        Scenario(String label) {
+            this.label = label;
+        }
+    }
+
+    private final TestContext context;
+    private final Scenario scenario;
+    private final ServerWorld world;
+    private final MinecraftServer server;
+    private final Vec3d origin;
+    private final List<SimulatedOwner> owners = new ArrayList<>();
+    private final Random random = new Random();
+    private final List<Entity> population = new ArrayList<>();
+    private final List<long[]> runs = new ArrayList<>();
+    private boolean modRun = false;
+    private int phaseTicks = 0;
+    private long[] samples;
+    private int ownerCursor = 0;
+
+    LoadTestRun(TestContext context, Scenario scenario) {
+        this.context = context;
+        this.scenario = scenario;
+        this.world = context.getWorld();
+        this.server = world.getServer();
+        this.origin = Vec3d.ofBottomCenter(context.getAbsolutePos(new BlockPos(1, 2, 1)));
+    }
+
+    void start() {
+        for (int i = 0; i < OWNERS; i++) {
+            owners.add(SimulatedOwner.join(world, "LoadTest" + i, origin));
+        }
+        BeastMasterMod.handlersEnabled = false;
+        spawnPopulation();
+        context.runAtEveryTick(() -> {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                // Rethrown to fail the test; the mod and the world are put back first
+                samples = null;
+                cleanUp();
+                throw e;
+            }
+        });
+    }
+
+    private void tick() {
+        if (samples == null) return;
+
+        phaseTicks++;
+        if (phaseTicks <= SETTLE_TICKS) {
+            if (phaseTicks == SETTLE_TICKS) {
+                beginRun();
+            }
+            return;
+        }
+
+        // The previous tick, which included this scenario's work
+        samples[phaseTicks - SETTLE_TICKS - 1] = TickTimer.getLastTickNanos();
+        if (phaseTicks - SETTLE_TICKS < RUN_TICKS) {
+            drive();
+            return;
+        }
+
+        runs.add(samples);
+        endRun();
+        if (!modRun) {
+            modRun = true;
+            // Switched on before the respawn, so ENTITY_LOAD registers the new population
+            BeastMasterMod.handlersEnabled = true;
+            spawnPopulation();
+        } else {
+            samples = null;
+            finish();
+        }
+    }
+
+    private void spawnPopulation() {
+        removePopulation();
+        int total = OWNERS * PER_OWNER;
+        int side = (int) Math.ceil(Math.sqrt(total));
+        for (int i = 0; i < total; i++) {
+            Entity entity = POPULATION_TYPES[i % POPULATION_TYPES.length].create(world);
+            if (entity == null) continue;
+
+            UUID owner = owners.get(i % owners.size()).getUuid();
+            if (entity instanceof TameableEntity tameable) {
+                tameable.setOwnerUuid(owner);
+                tameable.setTamed(true);
+            } else if (entity instanceof HorseBaseEntity horse) {
+                horse.setOwnerUuid(owner);
+                horse.setTame(true);
+            }
+            entity.setCustomName(Text.of("Load " + i));
+
+            // A grid two blocks apart so the population doesn't start out cramming
+            double x = origin.x + (i % side - side / 2.0) * 2;
+            double z = origin.z + (i / side - side / 2.0) * 2;
+            entity.refreshPositionAndAngles(x, origin.y, z, random.nextFloat() * 360, 0);
+            // Registered by the ENTITY_LOAD handler while it's switched on
+            if (world.spawnEntity(entity)) {
+                population.add(entity);
+            }
+        }
+        phaseTicks = 0;
+        samples = new long[RUN_TICKS];
+    }
+
+    private void beginRun() {
+        if (modRun) {
+            int registered = 0;
+            PackManager manager = PackManager.get(server);
+            for (SimulatedOwner owner : owners) {
+                registered += manager.getEntitiesByOwner(owner.getUuid()).size();
+            }
+            if (registered != population.size()) {
+                throw new GameTestException("Only " + registered + " of " + population.size() + " companions were registered on load");
+            }
+        }
+
+        if (scenario == Scenario.REGEN) {
+            for (Entity entity : population) {
+                if (entity instanceof LivingEntity living && living.isAlive()) {
+                    living.setHealth(living.getMaxHealth() / 2);
+                }
+            }
+        }
+    }
+
+    private void drive() {
+        switch (scenario) {
+            case DAMAGE -> damageAll();
+            case LIST -> {
+                if (modRun) listAll();
+            }
+            case FIND -> {
+                if (modRun) findAll();
+            }
+            case WHISTLE -> {
+                if (modRun) whistleNext();
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void endRun() {
+        for (SimulatedOwner owner : owners) {
+            TickJobs.cancel(server, EntitySearchJob.jobKey(owner.getUuid()));
+            TickJobs.cancel(server, SummonJob.jobKey(owner.getUuid()));
+        }
+    }
+
+    // Without the immortality handler the storm would kill the population, so both runs top it up
+    private void damageAll() {
+        for (Entity entity : population) {
+            if (entity instanceof LivingEntity living && living.isAlive()) {
+                living.damage(DamageSource.GENERIC, 1.0f);
+                if (living.getHealth() < living.getMaxHealth() / 2) {
+                    living.setHealth(living.getMaxHealth());
+                }
+            }
+        }
+    }
+
+    // Every simulated owner lists both their pets and mounts each tick
+    private void listAll() {
+        for (SimulatedOwner owner : owners) {
+            owner.run("beast pet list");
+            owner.run("beast mount list");
+        }
+    }
+
+    // Owners search back to back, each within the usual find budget. The cooldown is cleared first,
+    // otherwise it would leave most of the run without a search.
+    private void findAll() {
+        for (int i = 0; i < owners.size(); i++) {
+            SimulatedOwner owner = owners.get(i);
+            if (!TickJobs.isRunning(EntitySearchJob.jobKey(owner.getUuid()))) {
+                CooldownService.cancel(CooldownService.Category.FIND, owner.getUuid());
+                owner.run(i % 2 == 0 ? "beast pet find" : "beast mount find");
+            }
+        }
+    }
+
+    // One owner per tick whistles, taking turns between pets and mounts; SummonJob brings the pack
+    // to them at the origin. The cooldown is cleared for the same reason as in findAll.
+    private void whistleNext() {
+        SimulatedOwner owner = owners.get(ownerCursor % owners.size());
+        boolean pets = (ownerCursor / owners.size()) % 2 == 0;
+        ownerCursor++;
+        CooldownService.cancel(CooldownService.Category.WHISTLE, owner.getUuid());
+        owner.run(pets ? "beast pet whistle" : "beast mount whistle");
+    }
+
+    private void finish() {
+        List<String> report = buildReport();
+        for (String line : report) {
+            LOGGER.info(line);
+        }
+
+        Path file = server.getRunDirectory().toPath().resolve("loadtest-" + scenario.name().toLowerCase() + ".txt");
+        try {
+            Files.write(file, report);
+        } catch (IOException e) {
+            LOGGER.error("Failed to write load test report", e);
+        }
+
+        cleanUp();
+        context.complete();
+    }
+
+    private List<String> buildReport() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Beast Master load test: " + scenario.label);
+        lines.add("Population: " + OWNERS + " owners x " + PER_OWNER + " companions, " + RUN_TICKS +
+            " ticks per run, asyncPersistence: " + BeastMasterMod.CONFIG.asyncPersistence);
+        if (scenario == Scenario.LIST || scenario == Scenario.FIND || scenario == Scenario.WHISTLE) {
+            lines.add("The commands only run with the mod on; the mod off run idles with the same population.");
+        }
+        lines.add(String.format("%-8s %8s %8s %8s %8s %8s", "run", "mean", "p50", "p95", "p99", "max"));
+        for (int i = 0; i < runs.size(); i++) {
+            long[] sorted = runs.get(i).clone();
+            Arrays.sort(sorted);
+            lines.add(String.format("%-8s %8.2f %8.2f %8.2f %8.2f %8.2f", i == 0 ? "mod off" : "mod on",
+                Arrays.stream(sorted).average().orElse(0) / 1_000_000.0,
+                percentile(sorted, 50) / 1_000_000.0, percentile(sorted, 95) / 1_000_000.0,
+                percentile(sorted, 99) / 1_000_000.0, sorted[sorted.length - 1] / 1_000_000.0));
+        }
+        lines.add("All times are milliseconds per tick.");
+        return lines;
+    }
+
+    // Expects sorted values
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    // Also runs when the test fails; a test that times out leaves its owners behind until the server stops
+    private void cleanUp() {
+        BeastMasterMod.handlersEnabled = true;
+        endRun();
+        removePopulation();
+        for (SimulatedOwner owner : owners) {
+            owner.leave();
+        }
+        owners.clear();
+    }
+
+    private void removePopulation() {
+        PackManager manager = PackManager.get(server);
+        for (Entity entity : population) {
+            manager.untrackEntity(entity.getUuid());
+            if (!entity.isRemoved()) {
+                entity.discard();
+            }
+        }
+        population.clear();
+    }
+}
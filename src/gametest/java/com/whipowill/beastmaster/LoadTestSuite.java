@@ -0,0 +1,41 @@
+package com.whipowill.beastmaster;
+
+import net.fabricmc.fabric.api.gametest.v1.FabricGameTest;
+import net.minecraft.test.GameTest;
+import net.minecraft.test.TestContext;
+
+// Load test scenarios, one game test each. Every test gets its own batch so they run one after
+// another; whole-tick timings would be meaningless with two scenarios sharing the server.
+public class LoadTestSuite implements FabricGameTest {
+    private static final int TICK_LIMIT = 2 * (LoadTestRun.SETTLE_TICKS + LoadTestRun.RUN_TICKS) + 100;
+
+    @GameTest(structureName = EMPTY_STRUCTURE, batchId = "beastmaster_idle", tickLimit = TICK_LIMIT)
+    public void idle(TestContext context) {
+        new LoadTestRun(context, LoadTestRun.Scenario.IDLE).start();
+    }
+
+    @GameTest(structureName = EMPTY_STRUCTURE, batchId = "beastmaster_regen", tickLimit = TICK_LIMIT)
+    public void regen(TestContext context) {
+        new LoadTestRun(context, LoadTestRun.Scenario.REGEN).start();
+    }
+
+    @GameTest(structureName = EMPTY_STRUCTURE, batchId = "beastmaster_damage", tickLimit = TICK_LIMIT)
+    public void damageStorm(TestContext context) {
+        new LoadTestRun(context, LoadTestRun.Scenario.DAMAGE).start();
+    }
+
+    @GameTest(structureName = EMPTY_STRUCTURE, batchId = "beastmaster_list", tickLimit = TICK_LIMIT)
+    public void listStorm(TestContext context) {
+        new LoadTestRun(context, LoadTestRun.Scenario.LIST).start();
+    }
+
+    @GameTest(structureName = EMPTY_STRUCTURE, batchId = "beastmaster_find", tickLimit = TICK_LIMIT)
+    public void find(TestContext context) {
+        new LoadTestRun(context, LoadTestRun.Scenario.FIND).start();
+    }
+
+    @GameTest(structureName = EMPTY_STRUCTURE, batchId = "beastmaster_whistle", tickLimit = TICK_LIMIT)
+    public void whistle(TestContext context) {
+        new LoadTestRun(context, LoadTestRun.Scenario.WHISTLE).start();
+    }
+}
@@ -0,0 +1,63 @@
+package com.whipowill.beastmaster;
+
+import com.mojang.authlib.GameProfile;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import net.minecraft.network.ClientConnection;
+import net.minecraft.network.NetworkSide;
+import net.minecraft.network.Packet;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.Text;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.GameMode;
+
+import java.util.UUID;
+
+// A player with no client behind it, joined through the player manager like a real one so the
+// commands and the jobs they start (which look their player up by UUID) work unchanged.
+class SimulatedOwner {
+    private final MinecraftServer server;
+    private final ServerPlayerEntity player;
+
+    private SimulatedOwner(MinecraftServer server, ServerPlayerEntity player) {
+        this.server = server;
+        this.player = player;
+    }
+
+    static SimulatedOwner join(ServerWorld world, String name, Vec3d pos) {
+        MinecraftServer server = world.getServer();
+        ServerPlayerEntity player = new ServerPlayerEntity(server, world, new GameProfile(UUID.randomUUID(), name));
+        server.getPlayerManager().onPlayerConnect(new NullConnection(), player);
+        // Creative, so nothing in the test area can hurt it
+        player.changeGameMode(GameMode.CREATIVE);
+        player.teleport(world, pos.x, pos.y, pos.z, 0, 0);
+        return new SimulatedOwner(server, player);
+    }
+
+    UUID getUuid() {
+        return player.getUuid();
+    }
+
+    int run(String command) {
+        return server.getCommandManager().execute(player.getCommandSource(), command);
+    }
+
+    void leave() {
+        if (server.getPlayerManager().getPlayer(player.getUuid()) == player) {
+            player.networkHandler.onDisconnected(Text.of("Load test finished"));
+        }
+    }
+
+    // Drops every packet, so the chat output of the commands doesn't pile up in a send queue
+    private static class NullConnection extends ClientConnection {
+        NullConnection() {
+            super(NetworkSide.SERVERBOUND);
+        }
+
+        @Override
+        public void send(Packet<?> packet, GenericFutureListener<? extends Future<? super Void>> callback) {
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.whipowill.beastmaster;
+
+import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.event.Event;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.util.Identifier;
+
+// Times whole server ticks for the load tests. Its listeners are ordered before and after every other
+// tick listener, so the mod's handlers and the game tests' own per-tick work are inside the measurement.
+public class TickTimer implements ModInitializer {
+    private static final Identifier TIMING_PHASE = new Identifier("beastmaster-gametest", "tick_timing");
+
+    private static long tickStart = 0;
+    private static long lastTickNanos = 0;
+
+    @Override
+    public void onInitialize() {
+        ServerTickEvents.START_SERVER_TICK.addPhaseOrdering(TIMING_PHASE, Event.DEFAULT_PHASE);
+        ServerTickEvents.END_SERVER_TICK.addPhaseOrdering(Event.DEFAULT_PHASE, TIMING_PHASE);
+
+        ServerTickEvents.START_SERVER_TICK.register(TIMING_PHASE, server -> tickStart = System.nanoTime());
+        ServerTickEvents.END_SERVER_TICK.register(TIMING_PHASE, server -> lastTickNanos = System.nanoTime() - tickStart);
+    }
+
+    // Duration of the last complete tick; server thread
+    public static long getLastTickNanos() {
+        return lastTickNanos;
+    }
+}
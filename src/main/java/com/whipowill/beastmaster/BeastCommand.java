@@ -6,11 +6,11 @@ import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import net.fabricmc.fabric.api.command.v1.CommandRegistrationCallback;
+import net.minecraft.command.CommandSource;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityType;
 import net.minecraft.entity.ItemEntity;
 import net.minecraft.entity.LivingEntity;
-import net.minecraft.entity.Tameable;
 import net.minecraft.entity.passive.*;
 import net.minecraft.entity.passive.AbstractDonkeyEntity;
 import net.minecraft.entity.passive.HorseBaseEntity;
@@ -25,13 +25,16 @@ import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
-import net.minecraft.sound.SoundEvents;
 import net.minecraft.text.Text;
-import net.minecraft.util.math.Box;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Function;
 
 public class BeastCommand implements Command<ServerCommandSource> {
 
@@ -44,36 +47,70 @@ public class BeastCommand implements Command<ServerCommandSource> {
                     .then(CommandManager.literal("whistle")
                         .executes(context -> callAllMounts(context))
                         .then(CommandManager.argument("name", StringArgumentType.greedyString())
+                            .suggests(CompanionNameSuggestions.MOUNTS)
                             .executes(context -> callMountsByName(context))))
                     .then(CommandManager.literal("find")
                         .executes(context -> findMounts(context)))
+                    .then(CommandManager.literal("scan")
+                        .executes(context -> scanRegions(context, false)))
                     .then(CommandManager.literal("list")
                         .executes(context -> listMounts(context)))
                     .then(CommandManager.literal("debug")
                         .executes(context -> debugMounts(context)))
                     .then(CommandManager.literal("setfree")
                         .then(CommandManager.argument("mountName", StringArgumentType.greedyString())
+                            .suggests(CompanionNameSuggestions.MOUNTS)
                             .executes(context -> setFreeMount(context))))
                     .then(CommandManager.literal("dismiss")
                         .then(CommandManager.argument("mountName", StringArgumentType.greedyString())
+                            .suggests(CompanionNameSuggestions.MOUNTS)
                             .executes(context -> dismissMount(context)))))
                 .then(CommandManager.literal("pet")
                     .then(CommandManager.literal("whistle")
                         .executes(context -> callAllPets(context))
                         .then(CommandManager.argument("name", StringArgumentType.greedyString())
+                            .suggests(CompanionNameSuggestions.PETS)
                             .executes(context -> callPetsByName(context))))
                     .then(CommandManager.literal("find")
                         .executes(context -> findPets(context)))
+                    .then(CommandManager.literal("scan")
+                        .executes(context -> scanRegions(context, true)))
                     .then(CommandManager.literal("list")
                         .executes(context -> listPets(context)))
                     .then(CommandManager.literal("debug")
                         .executes(context -> debugPets(context)))
                     .then(CommandManager.literal("setfree")
                         .then(CommandManager.argument("petName", StringArgumentType.greedyString())
+                            .suggests(CompanionNameSuggestions.PETS)
                             .executes(context -> setFreePet(context))))
                     .then(CommandManager.literal("dismiss")
                         .then(CommandManager.argument("petName", StringArgumentType.greedyString())
+                            .suggests(CompanionNameSuggestions.PETS)
                             .executes(context -> dismissPet(context)))))
+                .then(CommandManager.literal("perf")
+                    .requires(source -> source.hasPermissionLevel(2))
+                    .executes(context -> showPerf(context))
+                    .then(CommandManager.literal("reset")
+                        .executes(context -> resetPerf(context)))
+                    .then(CommandManager.literal("on")
+                        .executes(context -> setPerfEnabled(context, true)))
+                    .then(CommandManager.literal("off")
+                        .executes(context -> setPerfEnabled(context, false))))
+                .then(CommandManager.literal("reload")
+                    .requires(source -> source.hasPermissionLevel(2))
+                    .executes(context -> reloadConfig(context)))
+                .then(CommandManager.literal("record")
+                    .requires(source -> source.hasPermissionLevel(2))
+                    .then(CommandManager.literal("start")
+                        .executes(context -> startRecording(context)))
+                    .then(CommandManager.literal("stop")
+                        .executes(context -> stopRecording(context))))
+                .then(CommandManager.literal("replay")
+                    .requires(source -> source.hasPermissionLevel(2))
+                    .then(CommandManager.argument("trace", StringArgumentType.greedyString())
+                        .suggests((context, builder) -> CommandSource.suggestMatching(
+                            listTraces(context.getSource().getServer()), builder))
+                        .executes(context -> replayTrace(context))))
             );
         });
     }
@@ -94,18 +131,28 @@ public class BeastCommand implements Command<ServerCommandSource> {
 
         try {
             // Check cooldown first
-            if (BeastMasterMod.isPlayerOnCooldown(player.getUuid())) {
-                long remaining = BeastMasterMod.getCooldownRemaining(player.getUuid());
-                long seconds = (remaining + 999) / 1000;
+            if (CooldownService.isActive(CooldownService.Category.WHISTLE, player.getUuid())) {
+                long remaining = CooldownService.getRemainingTicks(CooldownService.Category.WHISTLE, player.getUuid());
+                long seconds = (remaining + 19) / 20;
                 player.sendMessage(Text.of("§cWhistle is on cooldown! " + seconds + " seconds remaining."), false);
                 return 0;
             }
 
+            if (TickJobs.isRunning(SummonJob.jobKey(player.getUuid()))) {
+                player.sendMessage(Text.of("§cYou are already calling your companions, please wait."), false);
+                return 0;
+            }
+
+            if (PackManager.get(player.getServer()).isOwnerLoading(player.getUuid())) {
+                player.sendMessage(Text.of("§7Your companions are still loading, try again in a moment."), false);
+                return 0;
+            }
+
             // Set cooldown
-            BeastMasterMod.setPlayerCooldown(player.getUuid());
+            CooldownService.start(CooldownService.Category.WHISTLE, player.getUuid(),
+                BeastMasterMod.CONFIG.whistleCooldownSeconds * 20);
 
             UUID playerUUID = player.getUuid();
-            ServerWorld currentWorld = player.getWorld();
             MinecraftServer server = player.getServer();
 
             if (server == null) {
@@ -121,19 +168,10 @@ public class BeastCommand implements Command<ServerCommandSource> {
             }
 
             // Filter pets by name if specified
-            List<PackManager.EntityData> targetPets = new ArrayList<>();
+            List<PackManager.EntityData> targetPets = whistleTargets(PackManager.get(server), playerUUID, true, petName);
             if (petName.isEmpty()) {
-                targetPets.addAll(ownedPets);
                 player.sendMessage(Text.of("§7Attempting to call all " + targetPets.size() + " pets..."), false);
             } else {
-                String searchName = petName.equalsIgnoreCase("Unknown") ? "Noname" : petName;
-                for (PackManager.EntityData pet : ownedPets) {
-                    String currentPetName = pet.customName != null ? pet.customName : "Noname";
-                    if (currentPetName.equalsIgnoreCase(searchName)) {
-                        targetPets.add(pet);
-                    }
-                }
-
                 if (targetPets.isEmpty()) {
                     player.sendMessage(Text.of("§cNo pet found with name: " + petName), false);
                     player.sendMessage(Text.of("§7Use '/beast pet list' to see your callable pets"), false);
@@ -142,59 +180,9 @@ public class BeastCommand implements Command<ServerCommandSource> {
                 player.sendMessage(Text.of("§7You have " + targetPets.size() + " callable pet" + (targetPets.size() > 1 ? "s" : "") + " named '" + petName + "', attempting to call..."), false);
             }
 
-            List<Entity> summonablePets = new ArrayList<>();
-            List<String> failedPets = new ArrayList<>();
-            List<UUID> deadPets = new ArrayList<>();
-
-            for (PackManager.EntityData petData : targetPets) {
-                try {
-                    Entity pet = findEntityInAnyWorld(server, petData.entityUuid);
-
-                    if (pet != null) {
-                        if (!pet.isAlive()) {
-                            deadPets.add(petData.entityUuid);
-                            continue;
-                        }
-
-                        if (BeastConfig.isSupportedPet(pet)) {
-                            summonablePets.add(pet);
-                        }
-                    } else {
-                        Entity loadedPet = loadAndTeleportEntity(server, petData, player);
-                        if (loadedPet != null) {
-                            summonablePets.add(loadedPet);
-                        } else {
-                            String currentPetName = petData.customName != null ? petData.customName : "Noname";
-                            failedPets.add(currentPetName);
-                        }
-                    }
-                } catch (Exception e) {
-                    LOGGER.error("Error processing pet {}", petData.entityUuid, e);
-                    String currentPetName = petData.customName != null ? petData.customName : "Noname";
-                    failedPets.add(currentPetName);
-                }
-            }
-
-            // Remove dead pets from tracking
-            removeDeadEntities(server, deadPets, player);
-
-            if (summonablePets.isEmpty()) {
-                if (!failedPets.isEmpty()) {
-                    player.sendMessage(Text.of("§cFailed to call " + failedPets.size() + " pet" + (failedPets.size() > 1 ? "s" : "")), false);
-                }
-                return 0;
-            }
-
-            // Teleport pets directly to player position
-            int teleportedCount = teleportEntitiesToPlayer(summonablePets, player, failedPets);
-
-            // Send result message
-            sendSummonResult(player, teleportedCount, failedPets, petName.isEmpty() ? "all pets" : "pet", petName.isEmpty() ? "all pets" : "'" + petName + "'");
-
-            currentWorld.playSound(null, player.getBlockPos(),
-                SoundEvents.ENTITY_WOLF_WHINE, player.getSoundCategory(), 1.0f, 1.0f);
-
-            return teleportedCount;
+            // Summoning happens over the next ticks so large packs don't stall the server
+            SummonJob.start(player, true, targetPets, petName);
+            return targetPets.size();
 
         } catch (Exception e) {
             LOGGER.error("Error in pet whistle command", e);
@@ -219,18 +207,28 @@ public class BeastCommand implements Command<ServerCommandSource> {
 
         try {
             // Check cooldown first
-            if (BeastMasterMod.isPlayerOnCooldown(player.getUuid())) {
-                long remaining = BeastMasterMod.getCooldownRemaining(player.getUuid());
-                long seconds = (remaining + 999) / 1000;
+            if (CooldownService.isActive(CooldownService.Category.WHISTLE, player.getUuid())) {
+                long remaining = CooldownService.getRemainingTicks(CooldownService.Category.WHISTLE, player.getUuid());
+                long seconds = (remaining + 19) / 20;
                 player.sendMessage(Text.of("§cWhistle is on cooldown! " + seconds + " seconds remaining."), false);
                 return 0;
             }
 
+            if (TickJobs.isRunning(SummonJob.jobKey(player.getUuid()))) {
+                player.sendMessage(Text.of("§cYou are already calling your companions, please wait."), false);
+                return 0;
+            }
+
+            if (PackManager.get(player.getServer()).isOwnerLoading(player.getUuid())) {
+                player.sendMessage(Text.of("§7Your companions are still loading, try again in a moment."), false);
+                return 0;
+            }
+
             // Set cooldown
-            BeastMasterMod.setPlayerCooldown(player.getUuid());
+            CooldownService.start(CooldownService.Category.WHISTLE, player.getUuid(),
+                BeastMasterMod.CONFIG.whistleCooldownSeconds * 20);
 
             UUID playerUUID = player.getUuid();
-            ServerWorld currentWorld = player.getWorld();
             MinecraftServer server = player.getServer();
 
             if (server == null) {
@@ -246,19 +244,10 @@ public class BeastCommand implements Command<ServerCommandSource> {
             }
 
             // Filter mounts by name if specified
-            List<PackManager.EntityData> targetMounts = new ArrayList<>();
+            List<PackManager.EntityData> targetMounts = whistleTargets(PackManager.get(server), playerUUID, false, mountName);
             if (mountName.isEmpty()) {
-                targetMounts.addAll(ownedMounts);
                 player.sendMessage(Text.of("§7Attempting to call all " + targetMounts.size() + " mounts..."), false);
             } else {
-                String searchName = mountName.equalsIgnoreCase("Unknown") ? "Noname" : mountName;
-                for (PackManager.EntityData mount : ownedMounts) {
-                    String currentMountName = mount.customName != null ? mount.customName : "Noname";
-                    if (currentMountName.equalsIgnoreCase(searchName)) {
-                        targetMounts.add(mount);
-                    }
-                }
-
                 if (targetMounts.isEmpty()) {
                     player.sendMessage(Text.of("§cNo mount found with name: " + mountName), false);
                     player.sendMessage(Text.of("§7Use '/beast mount list' to see your callable mounts"), false);
@@ -267,59 +256,9 @@ public class BeastCommand implements Command<ServerCommandSource> {
                 player.sendMessage(Text.of("§7You have " + targetMounts.size() + " callable mount" + (targetMounts.size() > 1 ? "s" : "") + " named '" + mountName + "', attempting to call..."), false);
             }
 
-            List<Entity> summonableMounts = new ArrayList<>();
-            List<String> failedMounts = new ArrayList<>();
-            List<UUID> deadMounts = new ArrayList<>();
-
-            for (PackManager.EntityData mountData : targetMounts) {
-                try {
-                    Entity mount = findEntityInAnyWorld(server, mountData.entityUuid);
-
-                    if (mount != null) {
-                        if (!mount.isAlive()) {
-                            deadMounts.add(mountData.entityUuid);
-                            continue;
-                        }
-
-                        if (BeastConfig.isSupportedMount(mount)) {
-                            summonableMounts.add(mount);
-                        }
-                    } else {
-                        Entity loadedMount = loadAndTeleportEntity(server, mountData, player);
-                        if (loadedMount != null) {
-                            summonableMounts.add(loadedMount);
-                        } else {
-                            String currentMountName = mountData.customName != null ? mountData.customName : "Noname";
-                            failedMounts.add(currentMountName);
-                        }
-                    }
-                } catch (Exception e) {
-                    LOGGER.error("Error processing mount {}", mountData.entityUuid, e);
-                    String currentMountName = mountData.customName != null ? mountData.customName : "Noname";
-                    failedMounts.add(currentMountName);
-                }
-            }
-
-            // Remove dead mounts from tracking
-            removeDeadEntities(server, deadMounts, player);
-
-            if (summonableMounts.isEmpty()) {
-                if (!failedMounts.isEmpty()) {
-                    player.sendMessage(Text.of("§cFailed to call " + failedMounts.size() + " mount" + (failedMounts.size() > 1 ? "s" : "")), false);
-                }
-                return 0;
-            }
-
-            // Teleport mounts directly to player position
-            int teleportedCount = teleportEntitiesToPlayer(summonableMounts, player, failedMounts);
-
-            // Send result message
-            sendSummonResult(player, teleportedCount, failedMounts, mountName.isEmpty() ? "all mounts" : "mount", mountName.isEmpty() ? "all mounts" : "'" + mountName + "'");
-
-            currentWorld.playSound(null, player.getBlockPos(),
-                SoundEvents.ENTITY_HORSE_GALLOP, player.getSoundCategory(), 1.0f, 1.0f);
-
-            return teleportedCount;
+            // Summoning happens over the next ticks so large packs don't stall the server
+            SummonJob.start(player, false, targetMounts, mountName);
+            return targetMounts.size();
 
         } catch (Exception e) {
             LOGGER.error("Error in mount whistle command", e);
@@ -331,29 +270,13 @@ public class BeastCommand implements Command<ServerCommandSource> {
     private static int findMounts(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
         ServerCommandSource source = context.getSource();
         ServerPlayerEntity player = source.getPlayer();
-        int found = comprehensiveEntitySearch(player.getServer(), player.getUuid(), false);
-
-        // Send feedback to player
-        if (found > 0) {
-            player.sendMessage(Text.of("§aFound and registered " + found + " mount" + (found > 1 ? "s" : "") + "!"), false);
-        } else {
-            player.sendMessage(Text.of("§cNo mounts found to register. Make sure you have tamed mounts nearby."), false);
-        }
-        return found;
+        return startEntitySearch(player, false);
     }
 
     private static int findPets(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
         ServerCommandSource source = context.getSource();
         ServerPlayerEntity player = source.getPlayer();
-        int found = comprehensiveEntitySearch(player.getServer(), player.getUuid(), true);
-
-        // Send feedback to player
-        if (found > 0) {
-            player.sendMessage(Text.of("§aFound and registered " + found + " pet" + (found > 1 ? "s" : "") + "!"), false);
-        } else {
-            player.sendMessage(Text.of("§cNo pets found to register. Make sure you have tamed pets nearby."), false);
-        }
-        return found;
+        return startEntitySearch(player, true);
     }
 
     private static int listMounts(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
@@ -380,90 +303,50 @@ public class BeastCommand implements Command<ServerCommandSource> {
         return debugEntities(player, true, "Pets");
     }
 
-    private static int comprehensiveEntitySearch(MinecraftServer server, UUID playerUUID, boolean searchPets) {
-        int registered = 0;
-        try {
-            LOGGER.info("=== STARTING COMPREHENSIVE ENTITY SEARCH ===");
-            LOGGER.info("Player: {}, Search type: {}", playerUUID, searchPets ? "PETS" : "MOUNTS");
-
-            for (ServerWorld world : server.getWorlds()) {
-                PackManager manager = PackManager.get(world);
-                LOGGER.info("Searching in world: {}", world.getRegistryKey().getValue());
-
-                List<Entity> entitiesInWorld = world.getEntitiesByClass(
-                    Entity.class,
-                    new Box(-30000000, -256, -30000000, 30000000, 256, 30000000),
-                    entity -> {
-                        boolean isCorrectType = searchPets ?
-                            BeastConfig.isSupportedPet(entity) :
-                            BeastConfig.isSupportedMount(entity);
-                        boolean isOwned = BeastMasterMod.isOwnedByPlayer(entity, playerUUID);
-                        boolean isAlive = entity.isAlive();
-
-                        // Debug logging for each entity
-                        if (isCorrectType) {
-                            LOGGER.info("FOUND POTENTIAL ENTITY: {} (Type: {}, Owned: {}, Alive: {})",
-                                entity.getUuid(),
-                                entity.getType().getTranslationKey(),
-                                isOwned,
-                                isAlive);
-
-                            if (isOwned) {
-                                LOGGER.info("  - Owner UUID: {}", BeastMasterMod.getOwnerUuid(entity));
-                                LOGGER.info("  - Is Tameable: {}", entity instanceof Tameable);
-                                if (entity instanceof Tameable tameable) {
-                                    LOGGER.info("  - Tameable Owner: {}", tameable.getOwnerUuid());
-                                }
-                                if (entity instanceof HorseEntity horse) {
-                                    LOGGER.info("  - Horse Owner: {}", horse.getOwnerUuid());
-                                }
-                            }
-                        }
-
-                        return isCorrectType && isOwned && isAlive;
-                    }
-                );
-
-                LOGGER.info("Found {} matching entities in world {}", entitiesInWorld.size(), world.getRegistryKey().getValue());
+    private static int startEntitySearch(ServerPlayerEntity player, boolean searchPets) {
+        String typeName = searchPets ? "pets" : "mounts";
+        if (CooldownService.isActive(CooldownService.Category.FIND, player.getUuid())) {
+            long seconds = (CooldownService.getRemainingTicks(CooldownService.Category.FIND, player.getUuid()) + 19) / 20;
+            player.sendMessage(Text.of("§cYou searched recently, try again in " + seconds + " seconds."), false);
+            return 0;
+        }
+        if (!EntitySearchJob.start(player, searchPets)) {
+            player.sendMessage(Text.of("§cA search is already running, please wait for it to finish."), false);
+            return 0;
+        }
+        CooldownService.start(CooldownService.Category.FIND, player.getUuid(), BeastMasterMod.CONFIG.findCooldownSeconds * 20);
 
-                for (Entity entity : entitiesInWorld) {
-                    manager.storeEntityNbt(entity);
-                    registered++;
-                    LOGGER.info("REGISTERED: {} ({})", entity.getUuid(), entity.getType().getTranslationKey());
-                }
-            }
+        // Results are reported by the job once every dimension has been checked
+        player.sendMessage(Text.of("§7Searching for your " + typeName + "..."), false);
+        return 1;
+    }
 
-            LOGGER.info("=== SEARCH COMPLETE: Registered {} entities ===", registered);
-        } catch (Exception e) {
-            LOGGER.error("Error in comprehensiveEntitySearch", e);
+    private static int scanRegions(CommandContext<ServerCommandSource> context, boolean scanPets) throws CommandSyntaxException {
+        ServerPlayerEntity player = context.getSource().getPlayer();
+        String typeName = scanPets ? "pets" : "mounts";
+        if (!RegionScanner.start(player, scanPets)) {
+            player.sendMessage(Text.of("§cA scan is already running, please wait for it to finish."), false);
+            return 0;
         }
-        return registered;
+
+        // Runs in the background; the scanner reports back when every dimension has been read
+        player.sendMessage(Text.of("§7Scanning saved areas for your " + typeName + ", this can take a while..."), false);
+        return 1;
     }
 
     private static int listEntities(ServerPlayerEntity player, boolean listPets, String typeName) {
         try {
+            if (PackManager.get(player.getServer()).isOwnerLoading(player.getUuid())) {
+                player.sendMessage(Text.of("§7Your companions are still loading, try again in a moment."), false);
+                return 0;
+            }
+
             List<PackManager.EntityData> ownedEntities = listPets ?
                 getAllRegisteredPets(player.getServer(), player.getUuid()) :
                 getAllRegisteredMounts(player.getServer(), player.getUuid());
 
-            player.sendMessage(Text.of("§7You have " + ownedEntities.size() + " callable " + typeName + "."), false);
-
-            if (ownedEntities.isEmpty()) {
-                player.sendMessage(Text.of("§7- None"), false);
-            } else {
-                // Sort entities alphabetically by name
-                ownedEntities.sort((e1, e2) -> {
-                    String name1 = e1.customName != null ? e1.customName : "Noname";
-                    String name2 = e2.customName != null ? e2.customName : "Noname";
-                    return name1.compareToIgnoreCase(name2);
-                });
-
-                for (PackManager.EntityData entityData : ownedEntities) {
-                    String entityName = entityData.customName != null ? entityData.customName : "Noname";
-                    String location = String.format("(%s: %.0f, %.0f, %.0f)",
-                        entityData.dimension.getValue(), entityData.x, entityData.y, entityData.z);
-                    player.sendMessage(Text.of("§7- " + entityName + " " + location), false);
-                }
+            for (Text line : listLines(ownedEntities, typeName)) {
+                player.sendMessage(line, false);
             }
 
             String findCommand = listPets ? "/beast pet find" : "/beast mount find";
@@ -478,6 +361,33 @@ public class BeastCommand implements Command<ServerCommandSource> {
         }
     }
 
+    // The list output for one owner, sorted by name; also produced by the load test without sending it
+    static List<Text> listLines(List<PackManager.EntityData> ownedEntities, String typeName) {
+        List<Text> lines = new ArrayList<>();
+        lines.add(Text.of("§7You have " + ownedEntities.size() + " callable " + typeName + "."));
+
+        if (ownedEntities.isEmpty()) {
+            lines.add(Text.of("§7- None"));
+            return lines;
+        }
+
+        // Sort entities alphabetically by name
+        List<PackManager.EntityData> sorted = new ArrayList<>(ownedEntities);
+        sorted.sort((e1, e2) -> {
+            String name1 = e1.customName != null ? e1.customName : "Noname";
+            String name2 = e2.customName != null ? e2.customName : "Noname";
+            return name1.compareToIgnoreCase(name2);
+        });
+
+        for (PackManager.EntityData entityData : sorted) {
+            String entityName = entityData.customName != null ? entityData.customName : "Noname";
+            String location = String.format("(%s: %.0f, %.0f, %.0f)",
+                entityData.dimension.getValue(), entityData.x, entityData.y, entityData.z);
+            lines.add(Text.of("§7- " + entityName + " " + location));
+        }
+        return lines;
+    }
+
     private static int debugEntities(ServerPlayerEntity player, boolean debugPets, String debugType) {
         try {
             MinecraftServer server = player.getServer();
@@ -488,16 +398,13 @@ public class BeastCommand implements Command<ServerCommandSource> {
             player.sendMessage(Text.of("§6Current Dimension: " + player.getWorld().getRegistryKey().getValue()), false);
 
             int loadedEntityCount = 0;
-            for (ServerWorld world : server.getWorlds()) {
-                List<Entity> entities = world.getEntitiesByClass(Entity.class,
-                    new Box(-30000000, -256, -30000000, 30000000, 256, 30000000),
-                    entity -> {
-                        boolean isCorrectType = debugPets ?
-                            BeastConfig.isSupportedPet(entity) :
-                            BeastConfig.isSupportedMount(entity);
-                        return isCorrectType && BeastMasterMod.isOwnedByPlayer(entity, playerUUID);
-                    });
-                loadedEntityCount += entities.size();
+            for (LivingEntity entity : CompanionTracker.getLiveCompanions()) {
+                boolean isCorrectType = debugPets ?
+                    BeastConfig.isSupportedPet(entity) :
+                    BeastConfig.isSupportedMount(entity);
+                if (isCorrectType && BeastMasterMod.isOwnedByPlayer(entity, playerUUID)) {
+                    loadedEntityCount++;
+                }
             }
             player.sendMessage(Text.of("§6Loaded " + debugType.toLowerCase() + ": " + loadedEntityCount), false);
 
@@ -506,12 +413,28 @@ public class BeastCommand implements Command<ServerCommandSource> {
                 getAllRegisteredMounts(server, playerUUID);
             player.sendMessage(Text.of("§6Callable " + debugType.toLowerCase() + ": " + registeredEntities.size()), false);
 
+            PackManager manager = PackManager.get(server);
+            player.sendMessage(Text.of("§6Resident owner shards: " + manager.getResidentShardCount()), false);
+            long[] snapshotSizes = manager.getSnapshotSizes();
+            player.sendMessage(Text.of("§6Snapshot storage: " + snapshotSizes[0] / 1024 + " KiB compressed, " +
+                snapshotSizes[1] / 1024 + " KiB uncompressed"), false);
+            player.sendMessage(Text.of("§6Snapshots: " + manager.getSnapshotsWritten() + " written, " +
+                manager.getSnapshotsSkipped() + " skipped (unchanged)"), false);
+            player.sendMessage(Text.of("§6Dimension hints: " + EntityResolver.getHintHits() + " hit, " +
+                EntityResolver.getFallbackHits() + " stale, " + EntityResolver.getMisses() + " not loaded"), false);
+            if (manager.getPendingActionCount() > 0) {
+                player.sendMessage(Text.of("§6Pending setfree/dismiss: " + manager.getPendingActionCount()), false);
+            }
+
+            // Break the single registry down by the dimension each entity was last seen in
             for (ServerWorld world : server.getWorlds()) {
-                PackManager manager = PackManager.get(world);
-                List<PackManager.EntityData> worldEntities = debugPets ?
-                    manager.getPetsByOwner(playerUUID) :
-                    manager.getMountsByOwner(playerUUID);
-                player.sendMessage(Text.of("§6- " + world.getRegistryKey().getValue() + ": " + worldEntities.size() + " " + debugType.toLowerCase()), false);
+                int worldCount = 0;
+                for (PackManager.EntityData entityData : registeredEntities) {
+                    if (entityData.dimension.equals(world.getRegistryKey())) {
+                        worldCount++;
+                    }
+                }
+                player.sendMessage(Text.of("§6- " + world.getRegistryKey().getValue() + ": " + worldCount + " " + debugType.toLowerCase()), false);
             }
 
             return 1;
@@ -522,14 +445,124 @@ public class BeastCommand implements Command<ServerCommandSource> {
         }
     }
 
+    private static int showPerf(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        source.sendFeedback(Text.of("§6=== Leader of the Pack Timings (" +
+            (PerfMonitor.isEnabled() ? "recording" : "off, use '/beast perf on'") + ") ==="), false);
+
+        for (PerfMonitor.Stats stats : PerfMonitor.getStats()) {
+            if (stats.count() == 0) {
+                source.sendFeedback(Text.of("§7" + stats.label() + ": no samples"), false);
+                continue;
+            }
+            String allocation = PerfMonitor.isAllocationTracked() ? ", ~" + stats.avgAllocatedBytes() / 1024 + " KiB alloc" : "";
+            source.sendFeedback(Text.of(String.format("§6%s: §f%d calls, p50 %.1f µs, p99 %.1f µs, max %.1f µs%s",
+                stats.label(), stats.count(), stats.p50Nanos() / 1000.0, stats.p99Nanos() / 1000.0,
+                stats.maxNanos() / 1000.0, allocation)), false);
+        }
+        return 1;
+    }
+
+    private static int resetPerf(CommandContext<ServerCommandSource> context) {
+        PerfMonitor.reset();
+        context.getSource().sendFeedback(Text.of("§aTimings reset."), false);
+        return 1;
+    }
+
+    private static int setPerfEnabled(CommandContext<ServerCommandSource> context, boolean enabled) {
+        PerfMonitor.setEnabled(enabled);
+        context.getSource().sendFeedback(Text.of(enabled ? "§aTimings are now being recorded." : "§aTimings stopped."), true);
+        return 1;
+    }
+
+    private static int reloadConfig(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        MinecraftServer server = source.getServer();
+        boolean wasAsync = BeastMasterMod.CONFIG.asyncPersistence;
+
+        // Read and validated off-thread; the new config is published on the server thread
+        BeastConfig.reload(server).whenComplete((config, error) -> server.execute(() -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                source.sendFeedback(Text.of("§cConfig not reloaded, keeping the current one: " + cause.getMessage()), false);
+                return;
+            }
+            ConfigWatcher.update(server, config);
+            source.sendFeedback(Text.of("§aReloaded config/beastmaster.json"), true);
+            if (config.asyncPersistence != wasAsync) {
+                source.sendFeedback(Text.of("§6asyncPersistence only changes after a restart."), false);
+            }
+        }));
+        return 1;
+    }
+
+    private static int startRecording(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        if (WorkloadRecorder.isRecording()) {
+            source.sendFeedback(Text.of("§cAlready recording, use '/beast record stop' first."), false);
+            return 0;
+        }
+        try {
+            Path file = WorkloadRecorder.start(source.getServer());
+            source.sendFeedback(Text.of("§aRecording companion events to " + file.getFileName()), true);
+            return 1;
+        } catch (IOException e) {
+            LOGGER.error("Failed to start workload recording", e);
+            source.sendFeedback(Text.of("§cCould not start recording: " + e.getMessage()), false);
+            return 0;
+        }
+    }
+
+    private static int stopRecording(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        long recorded = WorkloadRecorder.getRecorded();
+        long dropped = WorkloadRecorder.getDropped();
+        Path file = WorkloadRecorder.stop();
+        if (file == null) {
+            source.sendFeedback(Text.of("§cNot recording."), false);
+            return 0;
+        }
+        source.sendFeedback(Text.of("§aSaved " + recorded + " events to " + file.getFileName() +
+            (dropped > 0 ? " §c(" + dropped + " dropped)" : "")), true);
+        return 1;
+    }
+
+    private static List<String> listTraces(MinecraftServer server) {
+        List<String> traces = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(WorkloadRecorder.getTraceDirectory(server), "*.bmt")) {
+            for (Path file : files) {
+                traces.add(file.getFileName().toString());
+            }
+        } catch (IOException e) {
+            // No traces recorded yet
+        }
+        return traces;
+    }
+
+    private static int replayTrace(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        MinecraftServer server = source.getServer();
+        Path directory = WorkloadRecorder.getTraceDirectory(server);
+        Path file = directory.resolve(StringArgumentType.getString(context, "trace")).normalize();
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+            source.sendFeedback(Text.of("§cNo such trace in " + directory.getFileName() + "/"), false);
+            return 0;
+        }
+
+        // Runs against its own registry off the server thread; results come back when it's done
+        source.sendFeedback(Text.of("§7Replaying " + file.getFileName() + "..."), false);
+        WorkloadReplayer.replayAsync(file, report -> server.execute(() -> {
+            for (String line : report) {
+                source.sendFeedback(Text.of(line), false);
+            }
+        }));
+        return 1;
+    }
+
     private static List<PackManager.EntityData> getAllRegisteredMounts(MinecraftServer server, UUID playerUUID) {
         List<PackManager.EntityData> allMounts = new ArrayList<>();
         try {
-            for (ServerWorld world : server.getWorlds()) {
-                PackManager manager = PackManager.get(world);
-                List<PackManager.EntityData> worldMounts = manager.getMountsByOwner(playerUUID);
-                allMounts.addAll(worldMounts);
-            }
+            allMounts.addAll(PackManager.get(server).getMountsByOwner(playerUUID));
         } catch (Exception e) {
             LOGGER.error("Error getting all callable mounts", e);
         }
@@ -539,30 +572,27 @@ public class BeastCommand implements Command<ServerCommandSource> {
     private static List<PackManager.EntityData> getAllRegisteredPets(MinecraftServer server, UUID playerUUID) {
         List<PackManager.EntityData> allPets = new ArrayList<>();
         try {
-            for (ServerWorld world : server.getWorlds()) {
-                PackManager manager = PackManager.get(world);
-                List<PackManager.EntityData> worldPets = manager.getPetsByOwner(playerUUID);
-                allPets.addAll(worldPets);
-            }
+            allPets.addAll(PackManager.get(server).getPetsByOwner(playerUUID));
         } catch (Exception e) {
             LOGGER.error("Error getting all callable pets", e);
         }
         return allPets;
     }
 
-    private static Entity loadAndTeleportEntity(MinecraftServer server, PackManager.EntityData entityData, ServerPlayerEntity player) {
+    static Entity loadAndTeleportEntity(MinecraftServer server, PackManager.EntityData entityData, ServerPlayerEntity player) {
         try {
             LOGGER.info("=== SUMMONING ENTITY FROM NBT STORAGE ===");
             LOGGER.info("Entity: {} from {}", entityData.entityUuid, entityData.dimension.getValue());
 
             ServerWorld targetWorld = (ServerWorld) player.getWorld();
 
-            if (entityData.entityNbt == null) {
+            NbtCompound entityNbt = entityData.getEntityNbt();
+            if (entityNbt == null) {
                 LOGGER.warn("No NBT data stored for entity {}. Cannot summon.", entityData.entityUuid);
                 return null;
             }
 
-            Entity newEntity = EntityType.getEntityFromNbt(entityData.entityNbt, targetWorld).orElse(null);
+            Entity newEntity = EntityType.getEntityFromNbt(entityNbt, targetWorld).orElse(null);
             if (newEntity == null) {
                 LOGGER.error("Failed to create entity from NBT data");
                 return null;
@@ -574,8 +604,8 @@ public class BeastCommand implements Command<ServerCommandSource> {
 
             LOGGER.info("Successfully summoned entity from NBT storage");
 
-            // Update tracking in the new world
-            PackManager manager = PackManager.get(targetWorld);
+            // Update tracking with the new location
+            PackManager manager = PackManager.get(server);
             manager.storeEntityNbt(newEntity);
 
             return newEntity;
@@ -586,58 +616,50 @@ public class BeastCommand implements Command<ServerCommandSource> {
         return null;
     }
 
-    private static Entity findEntityInAnyWorld(MinecraftServer server, UUID entityUuid) {
-        try {
-            for (ServerWorld world : server.getWorlds()) {
-                Entity entity = world.getEntity(entityUuid);
-                if (entity != null && entity.isAlive() &&
-                    (BeastConfig.isSupportedPet(entity) || BeastConfig.isSupportedMount(entity))) {
-                    return entity;
-                }
-            }
-        } catch (Exception e) {
-            LOGGER.error("Error in findEntityInAnyWorld", e);
-        }
-        return null;
-    }
-
-    private static int teleportEntitiesToPlayer(List<Entity> entities, ServerPlayerEntity player, List<String> failedList) {
-        int teleportedCount = 0;
-        for (Entity entity : entities) {
-            try {
-                // Teleport directly to player position
-                entity.teleport(player.getX(), player.getY(), player.getZ());
+    // Returns the entity now standing next to the player, which is a new instance after a dimension change
+    static Entity moveEntityToPlayer(Entity entity, ServerPlayerEntity player) {
+        ServerWorld targetWorld = player.getWorld();
 
-                // Stop navigation for certain entities
-                if (entity instanceof HorseEntity horse) {
-                    horse.getNavigation().stop();
-                }
+        if (entity.getWorld() == targetWorld) {
+            // Teleport directly to player position
+            entity.teleport(player.getX(), player.getY(), player.getZ());
 
-                teleportedCount++;
-            } catch (Exception e) {
-                LOGGER.error("Error teleporting entity {}", entity.getUuid(), e);
-                String entityName = entity.hasCustomName() ? entity.getCustomName().getString() : "Noname";
-                failedList.add(entityName);
+            // Stop navigation for certain entities
+            if (entity instanceof HorseEntity horse) {
+                horse.getNavigation().stop();
             }
+            return entity;
+        }
+
+        // Different dimension: recreate it in the player's world the way Entity.moveToWorld does,
+        // without the portal search
+        entity.stopRiding();
+        entity.removeAllPassengers();
+        Entity moved = entity.getType().create(targetWorld);
+        if (moved == null) {
+            LOGGER.error("Failed to recreate {} in {}", entity.getUuid(), targetWorld.getRegistryKey().getValue());
+            return null;
         }
-        return teleportedCount;
+        moved.copyFrom(entity);
+        moved.refreshPositionAndAngles(player.getX(), player.getY(), player.getZ(), entity.getYaw(), entity.getPitch());
+        entity.remove(Entity.RemovalReason.CHANGED_DIMENSION);
+        targetWorld.onDimensionChanged(moved);
+
+        PackManager.get(player.getServer()).storeEntityNbt(moved);
+        return moved;
     }
 
-    private static void removeDeadEntities(MinecraftServer server, List<UUID> deadEntities, ServerPlayerEntity player) {
+    static void removeDeadEntities(MinecraftServer server, List<UUID> deadEntities, ServerPlayerEntity player) {
         if (!deadEntities.isEmpty()) {
+            PackManager manager = PackManager.get(server);
             for (UUID deadEntityId : deadEntities) {
-                for (ServerWorld world : server.getWorlds()) {
-                    PackManager manager = PackManager.get(world);
-                    if (manager.isEntityTracked(deadEntityId)) {
-                        manager.untrackEntity(deadEntityId);
-                    }
-                }
+                manager.untrackEntity(deadEntityId);
             }
             player.sendMessage(Text.of("§6Removed " + deadEntities.size() + " dead entit" + (deadEntities.size() > 1 ? "ies" : "y") + " from callable list."), false);
         }
     }
 
-    private static void sendSummonResult(ServerPlayerEntity player, int count, List<String> failed, String type, String name) {
+    static void sendSummonResult(ServerPlayerEntity player, int count, List<String> failed, String type, String name) {
         StringBuilder message = new StringBuilder();
         if (count > 0) {
             message.append("§aCalled ").append(count).append(" ").append(type).append(count > 1 ? "s" : "").append(" ").append(name).append("!");
@@ -695,16 +717,24 @@ public class BeastCommand implements Command<ServerCommandSource> {
         ServerCommandSource source = context.getSource();
         ServerPlayerEntity player = source.getPlayer();
 
+        if (rejectWildcardName(player, entityName)) {
+            return 0;
+        }
+
         try {
             // Find the target entity
-            Entity targetEntity = findTargetEntityByName(player, isPet, entityName);
-            if (targetEntity == null) {
+            Target target = findTarget(player, isPet, entityName);
+            if (target == null) {
                 String type = isPet ? "pet" : "mount";
                 player.sendMessage(Text.of("§cNo owned " + type + " found with name: " + entityName), false);
                 player.sendMessage(Text.of("§7Use '/beast " + type + " list' to see your callable " + type + "s"), false);
                 return 0;
             }
+            if (target.entity() == null) {
+                return queueUnloadedAction(player, target.data(), PackManager.PendingAction.RELEASE);
+            }
 
+            Entity targetEntity = target.entity();
             String originalName = getEntityName(targetEntity);
             String entityType = targetEntity.getType().getTranslationKey();
             boolean success;
@@ -736,7 +766,7 @@ public class BeastCommand implements Command<ServerCommandSource> {
 
             if (success) {
                 // Remove from tracking
-                PackManager manager = PackManager.get((ServerWorld) player.getWorld());
+                PackManager manager = PackManager.get(player.getServer());
                 manager.untrackEntity(targetEntity.getUuid());
                 return 1;
             } else {
@@ -766,16 +796,24 @@ public class BeastCommand implements Command<ServerCommandSource> {
         ServerCommandSource source = context.getSource();
         ServerPlayerEntity player = source.getPlayer();
 
+        if (rejectWildcardName(player, entityName)) {
+            return 0;
+        }
+
         try {
             // Find the target entity
-            Entity targetEntity = findTargetEntityByName(player, isPet, entityName);
-            if (targetEntity == null) {
+            Target target = findTarget(player, isPet, entityName);
+            if (target == null) {
                 String type = isPet ? "pet" : "mount";
                 player.sendMessage(Text.of("§cNo owned " + type + " found with name: " + entityName), false);
                 player.sendMessage(Text.of("§7Use '/beast " + type + " list' to see your callable " + type + "s"), false);
                 return 0;
             }
+            if (target.entity() == null) {
+                return queueUnloadedAction(player, target.data(), PackManager.PendingAction.DISCARD);
+            }
 
+            Entity targetEntity = target.entity();
             String entityNameStr = getEntityName(targetEntity);
 
             // DROP INVENTORY BEFORE REMOVAL (NEW)
@@ -796,7 +834,7 @@ public class BeastCommand implements Command<ServerCommandSource> {
             }
 
             // Remove from tracking
-            PackManager manager = PackManager.get((ServerWorld) player.getWorld());
+            PackManager manager = PackManager.get(player.getServer());
             manager.untrackEntity(targetEntity.getUuid());
 
             return 1;
@@ -1058,28 +1096,106 @@ public class BeastCommand implements Command<ServerCommandSource> {
         return droppedCount;
     }
 
-    private static Entity findTargetEntityByName(ServerPlayerEntity player, boolean findPet, String entityName) {
-        List<Entity> entities = player.getWorld().getOtherEntities(player,
-            player.getBoundingBox().expand(50.0), // Large radius to find named entities
-            entity -> {
-                boolean correctType = findPet ?
-                    BeastConfig.isSupportedPet(entity) :
-                    BeastConfig.isSupportedMount(entity);
-                boolean isOwned = BeastMasterMod.isOwnedByPlayer(entity, player.getUuid());
+    // A registry record and its live entity; the entity is null while its chunk isn't loaded
+    record Target(PackManager.EntityData data, Entity entity) {}
 
-                // FIX: Special handling for "Noname" to match unnamed entities
-                boolean nameMatches;
-                if (entityName.equalsIgnoreCase("Noname")) {
-                    nameMatches = !entity.hasCustomName(); // Match entities with no custom name
-                } else {
-                    nameMatches = entity.hasCustomName() &&
-                        entity.getCustomName().getString().equalsIgnoreCase(entityName);
+    // Name -> UUID through the owner's name index, then a direct lookup in the recorded dimension
+    private static Target findTarget(ServerPlayerEntity player, boolean findPet, String entityName) {
+        MinecraftServer server = player.getServer();
+        return selectTarget(PackManager.get(server), player.getUuid(), findPet, entityName, entityData -> {
+            ServerWorld world = server.getWorld(entityData.dimension);
+            return world != null ? world.getEntity(entityData.entityUuid) : null;
+        });
+    }
+
+    // Registry side of findTarget, shared with WorkloadReplayer (whose lookup never finds an entity):
+    // the first match that is loaded, alive and still owned, else the first one that isn't loaded
+    static Target selectTarget(PackManager manager, UUID ownerUuid, boolean findPet, String entityName,
+                               Function<PackManager.EntityData, Entity> lookup) {
+        PackManager.EntityData unloaded = null;
+        for (PackManager.EntityData entityData : manager.findByName(ownerUuid, findPet, entityName)) {
+            Entity entity = lookup.apply(entityData);
+            if (entity == null) {
+                if (unloaded == null) {
+                    unloaded = entityData;
                 }
+            } else if (entity.isAlive() && BeastMasterMod.isOwnedByPlayer(entity, ownerUuid)) {
+                return new Target(entityData, entity);
+            }
+        }
+        return unloaded != null ? new Target(unloaded, null) : null;
+    }
 
-                return correctType && isOwned && entity.isAlive() && nameMatches;
-            });
+    // Who a whistle calls: all of the owner's pets or mounts, or the exact, prefix ("Rex*") or glob
+    // matches from the name index. Shared with WorkloadReplayer.
+    static List<PackManager.EntityData> whistleTargets(PackManager manager, UUID ownerUuid, boolean pets, String name) {
+        if (name.isEmpty()) {
+            return pets ? manager.getPetsByOwner(ownerUuid) : manager.getMountsByOwner(ownerUuid);
+        }
+        return manager.findByName(ownerUuid, pets, name);
+    }
 
-        return entities.isEmpty() ? null : entities.get(0);
+    // setfree and dismiss can't be undone, so they only take one exact name
+    static boolean isExactName(String entityName) {
+        return entityName.indexOf('*') < 0 && entityName.indexOf('?') < 0;
+    }
+
+    private static boolean rejectWildcardName(ServerPlayerEntity player, String entityName) {
+        if (isExactName(entityName)) {
+            return false;
+        }
+        player.sendMessage(Text.of("§cUse the exact name here, '*' and '?' only work for whistling."), false);
+        return true;
+    }
+
+    private static int queueUnloadedAction(ServerPlayerEntity player, PackManager.EntityData entityData, PackManager.PendingAction action) {
+        String type = entityData.isPet ? "pet" : "mount";
+        String name = entityData.customName != null ? entityData.customName : "Your " + type;
+
+        if (!queuePendingAction(PackManager.get(player.getServer()), entityData.entityUuid, action)) {
+            player.sendMessage(Text.of("§c" + name + " isn't loaded right now. Whistle it or go near it first."), false);
+            return 0;
+        }
+
+        if (action == PackManager.PendingAction.RELEASE) {
+            player.sendMessage(Text.of("§a" + name + " will be set free the next time its area is loaded."), false);
+        } else {
+            player.sendMessage(Text.of("§a" + name + " will be dismissed the next time its area is loaded."), false);
+        }
+        return 1;
+    }
+
+    // The snapshot is all we have until the chunk loads again, so drop it from the list now and finish
+    // the job in ENTITY_LOAD. Shared with WorkloadReplayer; false if unloadedCompanionActions is off.
+    static boolean queuePendingAction(PackManager manager, UUID entityUuid, PackManager.PendingAction action) {
+        if (!BeastMasterMod.CONFIG.unloadedCompanionActions) {
+            return false;
+        }
+        manager.addPendingAction(entityUuid, action);
+        manager.untrackEntity(entityUuid);
+        return true;
+    }
+
+    // Finish a setfree or dismiss that was issued while the entity was unloaded
+    static void applyPendingAction(Entity entity, PackManager.PendingAction action) {
+        if (!entity.isAlive()) return;
+
+        boolean isPet = BeastConfig.isSupportedPet(entity);
+        if (action == PackManager.PendingAction.RELEASE) {
+            if (isPet) {
+                setPetFree(entity, null);
+            } else if (isVanillaMount(entity)) {
+                setVanillaMountFree(entity);
+            } else {
+                setModdedMountFree(entity);
+            }
+        } else {
+            if (!isPet) {
+                dropAllInventory(entity);
+            }
+            entity.remove(Entity.RemovalReason.DISCARDED);
+        }
+        LOGGER.info("Applied pending {} to {}", action, entity.getUuid());
     }
 
     private static String getEntityName(Entity entity) {
@@ -2,9 +2,12 @@ package com.whipowill.beastmaster;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityType;
-import net.minecraft.entity.passive.*;
+import net.minecraft.entity.passive.HorseBaseEntity;
+import net.minecraft.entity.passive.PigEntity;
+import net.minecraft.server.MinecraftServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,113 +15,291 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+// Immutable once built: a reload or an added entity type builds a new, validated instance with its
+// lookup tables resolved, and publish() swaps it into BeastMasterMod.CONFIG in one volatile write.
+// Readers that look at several fields should read CONFIG once into a local.
 public class BeastConfig {
     private static final Logger LOGGER = LoggerFactory.getLogger("BeastMaster");
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-    private static final Path CONFIG_PATH = Paths.get("config", "beastmaster.json");
-
-    // Config fields
-    public boolean petRegen = true;
-    public boolean mountRegen = false;
-    public boolean petImmortal = true;
-    public boolean mountImmortal = true;
-    public int healthRequiredToFight = 20;
-    public int healthRequiredToMove = 20;
-    public int whistleCooldownSeconds = 30;
-    public boolean disableFriendlyFire = true;
-    public String[] supportedPetEntities = {
+    static final Path CONFIG_PATH = Paths.get("config", "beastmaster.json");
+    private static final String[] DEFAULT_PET_ENTITIES = {
         "minecraft:wolf", "minecraft:cat", "minecraft:parrot"
     };
-    public String[] supportedMountEntities = {
+    private static final String[] DEFAULT_MOUNT_ENTITIES = {
         "minecraft:horse", "minecraft:donkey", "minecraft:mule",
         "minecraft:llama", "minecraft:pig"
     };
+    // Reads, parses and saves the file off the server thread, one at a time and in order
+    private static final ExecutorService IO = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "BeastMaster-Config");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    private transient Set<String> petEntitySet = new HashSet<>();
-    private transient Set<String> mountEntitySet = new HashSet<>();
+    // Config fields. Defaults are assigned in the constructor rather than in the declarations: javac
+    // inlines final fields with constant initializers, which would hide the values Gson reads in.
+    public final boolean petRegen;
+    public final boolean mountRegen;
+    public final boolean petImmortal;
+    public final boolean mountImmortal;
+    public final int healthRequiredToFight;
+    public final int healthRequiredToMove;
+    public final int whistleCooldownSeconds;
+    public final int findCooldownSeconds;
+    public final boolean disableFriendlyFire;
+    public final int findTickBudgetMillis;
+    public final int summonTickBudgetMillis;
+    public final boolean asyncPersistence;
+    public final int shardEvictionMinutes;
+    public final boolean unloadedCompanionActions;
+    public final long regionScanBytesPerSecond;
+    public final boolean perfMonitoring;
+    public final boolean recordWorkload;
+    public final boolean retrieveFromChunks;
+    public final int maxConcurrentChunkRetrievals;
+    public final int chunkRetrievalTimeoutTicks;
+    public final boolean watchConfigFile;
+    // Don't modify; a new config gets its own copies
+    public final String[] supportedPetEntities;
+    public final String[] supportedMountEntities;
 
-    public static boolean isSupportedPet(Entity entity) {
-        if (BeastMasterMod.CONFIG == null) return false;
+    // Resolved from the two lists above when the config is built
+    private final transient EntityRoles roles;
+
+    public BeastConfig() {
+        petRegen = true;
+        mountRegen = false;
+        petImmortal = true;
+        mountImmortal = true;
+        healthRequiredToFight = 20;
+        healthRequiredToMove = 20;
+        whistleCooldownSeconds = 30;
+        findCooldownSeconds = 5;
+        disableFriendlyFire = true;
+        findTickBudgetMillis = 2;
+        summonTickBudgetMillis = 5;
+        asyncPersistence = false;
+        shardEvictionMinutes = 10;
+        unloadedCompanionActions = false;
+        regionScanBytesPerSecond = 8L * 1024 * 1024;
+        perfMonitoring = false;
+        recordWorkload = false;
+        retrieveFromChunks = false;
+        maxConcurrentChunkRetrievals = 4;
+        chunkRetrievalTimeoutTicks = 100;
+        watchConfigFile = false;
+        supportedPetEntities = DEFAULT_PET_ENTITIES.clone();
+        supportedMountEntities = DEFAULT_MOUNT_ENTITIES.clone();
+        roles = EntityRoles.EMPTY;
+    }
 
-        // Get entity registry name
-        String entityId = EntityType.getId(entity.getType()).toString();
+    // Validated copy of a config as parsed, with the entity lists replaced and the roles resolved
+    private BeastConfig(BeastConfig source, String[] petEntities, String[] mountEntities) {
+        petRegen = source.petRegen;
+        mountRegen = source.mountRegen;
+        petImmortal = source.petImmortal;
+        mountImmortal = source.mountImmortal;
+        healthRequiredToFight = clamp("healthRequiredToFight", source.healthRequiredToFight, 0, 100);
+        healthRequiredToMove = clamp("healthRequiredToMove", source.healthRequiredToMove, 0, 100);
+        // Cooldowns are started in ticks, so keep seconds * 20 within what the cooldown wheel holds
+        whistleCooldownSeconds = clamp("whistleCooldownSeconds", source.whistleCooldownSeconds, 0, CooldownService.MAX_DELAY / 20);
+        findCooldownSeconds = clamp("findCooldownSeconds", source.findCooldownSeconds, 0, CooldownService.MAX_DELAY / 20);
+        disableFriendlyFire = source.disableFriendlyFire;
+        findTickBudgetMillis = clamp("findTickBudgetMillis", source.findTickBudgetMillis, 1, 50);
+        summonTickBudgetMillis = clamp("summonTickBudgetMillis", source.summonTickBudgetMillis, 1, 50);
+        asyncPersistence = source.asyncPersistence;
+        shardEvictionMinutes = clamp("shardEvictionMinutes", source.shardEvictionMinutes, 0, Integer.MAX_VALUE);
+        unloadedCompanionActions = source.unloadedCompanionActions;
+        regionScanBytesPerSecond = Math.max(64 * 1024L, source.regionScanBytesPerSecond);
+        perfMonitoring = source.perfMonitoring;
+        recordWorkload = source.recordWorkload;
+        retrieveFromChunks = source.retrieveFromChunks;
+        maxConcurrentChunkRetrievals = clamp("maxConcurrentChunkRetrievals", source.maxConcurrentChunkRetrievals, 1, 64);
+        chunkRetrievalTimeoutTicks = clamp("chunkRetrievalTimeoutTicks", source.chunkRetrievalTimeoutTicks, 1, 20 * 60);
+        watchConfigFile = source.watchConfigFile;
+        supportedPetEntities = cleanIds(petEntities, DEFAULT_PET_ENTITIES);
+        supportedMountEntities = cleanIds(mountEntities, DEFAULT_MOUNT_ENTITIES);
+        roles = EntityRoles.build(supportedPetEntities, supportedMountEntities);
+        LOGGER.debug("Resolved {} supported entity types", roles.size());
+    }
 
-        // Check if it's in our supported pets list
-        return BeastMasterMod.CONFIG.petEntitySet.contains(entityId) ||
-               // Keep vanilla compatibility
-               (entity instanceof WolfEntity) ||
-               (entity instanceof CatEntity) ||
-               (entity instanceof ParrotEntity);
+    private static int clamp(String name, int value, int min, int max) {
+        if (value < min || value > max) {
+            int clamped = Math.max(min, Math.min(max, value));
+            LOGGER.warn("Config value {}={} is out of range, using {}", name, value, clamped);
+            return clamped;
+        }
+        return value;
+    }
+
+    // Drops blank and repeated entries; a missing list falls back to the defaults
+    private static String[] cleanIds(String[] ids, String[] defaults) {
+        if (ids == null) return defaults.clone();
+
+        Set<String> cleaned = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id != null && !id.isBlank()) {
+                cleaned.add(id.trim());
+            }
+        }
+        return cleaned.toArray(new String[0]);
+    }
+
+    public static boolean isSupportedPet(Entity entity) {
+        BeastConfig config = BeastMasterMod.CONFIG;
+        if (config == null) return false;
+
+        // The vanilla pets are in the table too
+        return config.roles.isPet(entity.getType());
     }
 
     public static boolean isSupportedMount(Entity entity) {
-        if (BeastMasterMod.CONFIG == null) return false;
+        BeastConfig config = BeastMasterMod.CONFIG;
+        if (config == null) return false;
 
-        String entityId = EntityType.getId(entity.getType()).toString();
+        byte role = config.roles.get(entity.getType());
+        if ((role & EntityRoles.MOUNT) != 0) return true;
+        if ((role & EntityRoles.TAMED_MOUNT) == 0) return false;
 
-        return BeastMasterMod.CONFIG.mountEntitySet.contains(entityId) ||
-               // Keep vanilla compatibility with tamed checks
-               (entity instanceof HorseEntity && ((HorseEntity) entity).isTame()) ||
-               (entity instanceof DonkeyEntity && ((DonkeyEntity) entity).isTame()) ||
-               (entity instanceof MuleEntity && ((MuleEntity) entity).isTame()) ||
-               (entity instanceof LlamaEntity && ((LlamaEntity) entity).isTame()) ||
-               (entity instanceof PigEntity && ((PigEntity) entity).isSaddled());
+        // Vanilla mounts the config doesn't list only count once tamed
+        if (entity instanceof PigEntity pig) return pig.isSaddled();
+        return entity instanceof HorseBaseEntity horse && horse.isTame();
     }
 
-    public static BeastConfig load() {
-        BeastConfig config = new BeastConfig();
+    // Type-only checks for entities that only exist as NBT, e.g. found by the region scanner
+    public static boolean isSupportedPetType(EntityType<?> type) {
+        BeastConfig config = BeastMasterMod.CONFIG;
+        return config != null && config.roles.isPet(type);
+    }
 
-        try {
-            if (Files.exists(CONFIG_PATH)) {
-                String json = Files.readString(CONFIG_PATH);
-                config = GSON.fromJson(json, BeastConfig.class);
-            } else {
-                // Create directory if it doesn't exist
-                Files.createDirectories(CONFIG_PATH.getParent());
-            }
+    public static boolean isSupportedMountType(EntityType<?> type) {
+        BeastConfig config = BeastMasterMod.CONFIG;
+        return config != null && config.roles.isMount(type);
+    }
+
+    // Same settings with the ids and tags resolved again, e.g. once modded types are registered or datapacks reload
+    public BeastConfig withResolvedRoles() {
+        return new BeastConfig(this, supportedPetEntities, supportedMountEntities);
+    }
 
-            // Initialize sets
-            config.petEntitySet = new HashSet<>(Arrays.asList(config.supportedPetEntities));
-            config.mountEntitySet = new HashSet<>(Arrays.asList(config.supportedMountEntities));
+    // Makes the config current. Server thread: cached companion states are dropped along with the old roles.
+    public static void publish(BeastConfig config) {
+        BeastConfig previous = BeastMasterMod.CONFIG;
+        BeastMasterMod.CONFIG = config;
+        CompanionState.invalidateAll();
 
-            // Save config to ensure any new fields are persisted
-            config.save();
+        if (previous != null && previous.perfMonitoring != config.perfMonitoring) {
+            PerfMonitor.setEnabled(config.perfMonitoring);
+        }
+    }
 
+    // Startup: a file that parses is written back so new fields show up. A broken one is left as it is,
+    // with a copy in beastmaster.json.broken, and the defaults are used without saving them.
+    public static BeastConfig load() {
+        BeastConfig config;
+        try {
+            config = read();
             LOGGER.info("Loaded Leader of the Pack configuration");
         } catch (Exception e) {
             LOGGER.error("Failed to load config, using defaults", e);
+            backUpBrokenFile();
+            return new BeastConfig().withResolvedRoles();
         }
-
+        // Writes out settings added since the file was last saved
+        config.save();
         return config;
     }
 
+    // Keeps a copy of a file we couldn't parse, since the next save would replace it with defaults
+    private static void backUpBrokenFile() {
+        if (!Files.exists(CONFIG_PATH)) return;
+
+        Path backup = CONFIG_PATH.resolveSibling(CONFIG_PATH.getFileName() + ".broken");
+        try {
+            Files.copy(CONFIG_PATH, backup, StandardCopyOption.REPLACE_EXISTING);
+            LOGGER.warn("Kept the unreadable config as {}", backup);
+        } catch (IOException e) {
+            LOGGER.error("Failed to back up unreadable config to {}", backup, e);
+        }
+    }
+
+    // Parses and validates the file without publishing anything; throws if it can't be used
+    static BeastConfig read() throws IOException {
+        BeastConfig parsed = new BeastConfig();
+        if (Files.exists(CONFIG_PATH)) {
+            String json = Files.readString(CONFIG_PATH);
+            try {
+                parsed = GSON.fromJson(json, BeastConfig.class);
+            } catch (JsonParseException e) {
+                throw new IOException("Invalid JSON in " + CONFIG_PATH + ": " + e.getMessage(), e);
+            }
+            if (parsed == null) {
+                throw new IOException(CONFIG_PATH + " is empty");
+            }
+        }
+        return new BeastConfig(parsed, parsed.supportedPetEntities, parsed.supportedMountEntities);
+    }
+
+    // Reads the file off-thread and publishes the result on the server thread. If the file can't be
+    // used, the future fails and the current config stays in place.
+    public static CompletableFuture<BeastConfig> reload(MinecraftServer server) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return read();
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }, IO).thenApplyAsync(config -> {
+            publish(config);
+            LOGGER.info("Reloaded Leader of the Pack configuration");
+            return config;
+        }, server);
+    }
+
     public void save() {
         try {
             String json = GSON.toJson(this);
+            // Create directory if it doesn't exist
+            Files.createDirectories(CONFIG_PATH.getParent());
+            // Our own write isn't a change for the watcher to reload
+            ConfigWatcher.ignoreContent(json);
             Files.writeString(CONFIG_PATH, json);
         } catch (IOException e) {
             LOGGER.error("Failed to save config", e);
         }
     }
 
+    public void saveAsync() {
+        IO.execute(this::save);
+    }
+
     public static void addPetEntity(String entityId) {
-        if (BeastMasterMod.CONFIG != null && !BeastMasterMod.CONFIG.petEntitySet.contains(entityId)) {
-            BeastMasterMod.CONFIG.petEntitySet.add(entityId);
-            // Update the array for saving
-            BeastMasterMod.CONFIG.supportedPetEntities = BeastMasterMod.CONFIG.petEntitySet.toArray(new String[0]);
-            BeastMasterMod.CONFIG.save();
+        BeastConfig config = BeastMasterMod.CONFIG;
+        if (config != null && !Arrays.asList(config.supportedPetEntities).contains(entityId)) {
+            String[] petEntities = Arrays.copyOf(config.supportedPetEntities, config.supportedPetEntities.length + 1);
+            petEntities[petEntities.length - 1] = entityId;
+            BeastConfig updated = new BeastConfig(config, petEntities, config.supportedMountEntities);
+            publish(updated);
+            updated.saveAsync();
         }
     }
 
     public static void addMountEntity(String entityId) {
-        if (BeastMasterMod.CONFIG != null && !BeastMasterMod.CONFIG.mountEntitySet.contains(entityId)) {
-            BeastMasterMod.CONFIG.mountEntitySet.add(entityId);
-            BeastMasterMod.CONFIG.supportedMountEntities = BeastMasterMod.CONFIG.mountEntitySet.toArray(new String[0]);
-            BeastMasterMod.CONFIG.save();
+        BeastConfig config = BeastMasterMod.CONFIG;
+        if (config != null && !Arrays.asList(config.supportedMountEntities).contains(entityId)) {
+            String[] mountEntities = Arrays.copyOf(config.supportedMountEntities, config.supportedMountEntities.length + 1);
+            mountEntities[mountEntities.length - 1] = entityId;
+            BeastConfig updated = new BeastConfig(config, config.supportedPetEntities, mountEntities);
+            publish(updated);
+            updated.saveAsync();
         }
     }
-}
\ No newline at end of file
+}
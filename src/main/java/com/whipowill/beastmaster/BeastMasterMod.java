@@ -1,20 +1,15 @@
 package com.whipowill.beastmaster;
 
+import com.whipowill.beastmaster.jfr.RegenSweepEvent;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerEntityEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.event.player.UseEntityCallback;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.LivingEntity;
-import net.minecraft.entity.Tameable;
 import net.minecraft.entity.passive.WolfEntity;
-import net.minecraft.entity.passive.CatEntity;
-import net.minecraft.entity.passive.ParrotEntity;
-import net.minecraft.entity.passive.HorseEntity;
-import net.minecraft.entity.passive.DonkeyEntity;
-import net.minecraft.entity.passive.MuleEntity;
-import net.minecraft.entity.passive.LlamaEntity;
-import net.minecraft.entity.passive.PigEntity;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
@@ -23,19 +18,20 @@ import net.minecraft.util.ActionResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 public class BeastMasterMod implements ModInitializer {
     public static final String MOD_ID = "beastmaster";
     public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
-    public static BeastConfig CONFIG;
+    // Swapped as a whole by BeastConfig.publish(); never modified in place
+    public static volatile BeastConfig CONFIG;
+    // Off while a load test measures its baseline; Fabric events can't be unregistered
+    public static volatile boolean handlersEnabled = true;
 
-    // Cooldown tracking
-    private static final Map<UUID, Long> playerWhistleCooldowns = new HashMap<>();
-    private final Map<UUID, Long> mountBuckCooldowns = new HashMap<>();
+    // Buck again every 2 seconds while injured, but only tell the rider every 10
+    private static final int BUCK_COOLDOWN_TICKS = 40;
+    private static final int BUCK_MESSAGE_COOLDOWN_TICKS = 200;
 
     @Override
     public void onInitialize() {
@@ -43,18 +39,34 @@ public class BeastMasterMod implements ModInitializer {
 
         // Load configuration
         CONFIG = BeastConfig.load();
+        PerfMonitor.setEnabled(CONFIG.perfMonitoring);
 
         // Register commands
         BeastCommand.register();
 
         // Register entity tracking on load
         ServerEntityEvents.ENTITY_LOAD.register((entity, world) -> {
-            if (isSupportedEntity(entity) && isOwned(entity) && getOwnerUuid(entity) != null) {
+            if (!handlersEnabled) return;
+            CompanionState state = CompanionState.get(entity);
+            if (WorkloadRecorder.isRecording() && state.isCompanion()) {
+                WorkloadRecorder.recordEntityLoad(entity, state.ownerUuid);
+            }
+            if (state.isCompanion() && state.owned && state.ownerUuid != null) {
+                CompanionTracker.track(entity);
                 try {
-                    PackManager manager = PackManager.get((ServerWorld) world);
-                    if (!manager.isEntityTracked(entity.getUuid())) {
+                    PackManager manager = PackManager.get(world.getServer());
+
+                    PackManager.PendingAction pending = manager.onCompanionLoaded(entity.getUuid(), () -> {
                         manager.storeEntityNbt(entity);
                         LOGGER.debug("Tracked new entity on load: {}", entity.getUuid());
+                    });
+
+                    // Set free or dismissed while unloaded; finish it once the entity is fully added
+                    if (pending != null) {
+                        TickJobs.submit("pending:" + entity.getUuid(), server -> {
+                            BeastCommand.applyPendingAction(entity, pending);
+                            return true;
+                        });
                     }
                 } catch (Exception e) {
                     LOGGER.error("Error tracking entity on load", e);
@@ -62,10 +74,59 @@ public class BeastMasterMod implements ModInitializer {
             }
         });
 
+        // Modded entity types and tags only exist once the server is starting
+        ServerLifecycleEvents.SERVER_STARTING.register(server -> BeastConfig.publish(CONFIG.withResolvedRoles()));
+        ServerLifecycleEvents.END_DATA_PACK_RELOAD.register((server, resourceManager, success) -> {
+            if (success) {
+                BeastConfig.publish(CONFIG.withResolvedRoles());
+            }
+        });
+
+        ServerEntityEvents.ENTITY_UNLOAD.register((entity, world) -> CompanionTracker.untrack(entity));
+        ServerLifecycleEvents.SERVER_STARTED.register(server -> {
+            ConfigWatcher.update(server, CONFIG);
+            if (CONFIG.recordWorkload) {
+                try {
+                    WorkloadRecorder.start(server);
+                } catch (Exception e) {
+                    LOGGER.error("Failed to start workload recording", e);
+                }
+            }
+        });
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+            ConfigWatcher.stop();
+            WorkloadRecorder.stop();
+        });
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+            TickJobs.clear(server);
+            CooldownService.clear();
+            CompanionTracker.clear();
+            // The final world save has queued its registry delta by now; wait for it to hit disk
+            RegistryStorage.closeAll();
+        });
+
+        // Sharded storage keeps an owner's companions in memory only while they're around
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) ->
+            PackManager.get(server).onOwnerOnline(handler.player.getUuid()));
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) ->
+            PackManager.get(server).onOwnerOffline(handler.player.getUuid()));
+
+        // Sliced work queued by commands (find, ...)
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            if (handlersEnabled) {
+                TickJobs.tick(server);
+            }
+        });
+
         // Smart saving: Mounts only, smaller radius, no pets
         ServerTickEvents.START_SERVER_TICK.register(server -> {
+            if (!handlersEnabled) return;
+            CooldownService.tick();
+
             // Mount caching: every 5 seconds, 12 block radius
             if (server.getTicks() % 100 == 0) {
+                PerfMonitor.begin(PerfMonitor.Section.PROXIMITY_SAVE);
+                PackManager manager = PackManager.get(server);
                 for (ServerWorld world : server.getWorlds()) {
                     for (ServerPlayerEntity player : world.getPlayers()) {
                         // ONLY cache mounts within 12 blocks
@@ -74,7 +135,6 @@ public class BeastMasterMod implements ModInitializer {
                                 e -> BeastConfig.isSupportedMount(e) &&
                                      isOwnedByPlayer(e, player.getUuid()))) {
                             try {
-                                PackManager manager = PackManager.get(world);
                                 manager.storeEntityNbt(entity);
                             } catch (Exception e) {
                                 LOGGER.error("Error in mount proximity save", e);
@@ -82,32 +142,42 @@ public class BeastMasterMod implements ModInitializer {
                         }
                     }
                 }
+                PerfMonitor.end(PerfMonitor.Section.PROXIMITY_SAVE);
             }
 
-            // Apply regeneration effects if enabled
+            // Apply regeneration effects if enabled (only loaded, owned companions)
             if (server.getTicks() % 40 == 0) {
-                for (ServerWorld world : server.getWorlds()) {
-                    for (Entity entity : world.iterateEntities()) {
-                        if (isSupportedEntity(entity) && isOwned(entity) && entity instanceof LivingEntity living) {
-                            applyRegenEffects(living);
-                        }
-                    }
+                PerfMonitor.begin(PerfMonitor.Section.REGEN_SWEEP);
+                RegenSweepEvent event = new RegenSweepEvent();
+                event.begin();
+                List<LivingEntity> companions = CompanionTracker.getLiveCompanions();
+                for (LivingEntity living : companions) {
+                    applyRegenEffects(living);
                 }
+                event.end();
+                if (event.shouldCommit()) {
+                    event.companions = companions.size();
+                    event.commit();
+                }
+                PerfMonitor.end(PerfMonitor.Section.REGEN_SWEEP);
             }
 
-            // Clean up old cooldowns periodically
+            // Drop shards of owners who have been away for a while
             if (server.getTicks() % 200 == 0) {
-                cleanUpCooldowns();
+                PackManager.get(server).evictIdleShards();
             }
         });
 
         // Save on ALL interactions with owned entities
         UseEntityCallback.EVENT.register((player, world, hand, entity, hitResult) -> {
-            if (!world.isClient() && isSupportedEntity(entity)) {
+            if (handlersEnabled && !world.isClient() && isSupportedEntity(entity)) {
+                if (WorkloadRecorder.isRecording()) {
+                    WorkloadRecorder.recordUseEntity(player, entity);
+                }
                 if (isOwnedByPlayer(entity, player.getUuid())) {
                     world.getServer().execute(() -> {
                         try {
-                            PackManager manager = PackManager.get((ServerWorld) world);
+                            PackManager manager = PackManager.get(world.getServer());
                             manager.storeEntityNbt(entity);
                             LOGGER.debug("Updated entity on interaction: {}",
                                 entity.getUuid());
@@ -122,18 +192,19 @@ public class BeastMasterMod implements ModInitializer {
     }
 
     private void applyRegenEffects(LivingEntity entity) {
+        BeastConfig config = CONFIG;
         try {
             boolean isPet = BeastConfig.isSupportedPet(entity);
             boolean isMount = BeastConfig.isSupportedMount(entity);
 
-            if (isPet && CONFIG.petRegen && entity.isAlive()) {
+            if (isPet && config.petRegen && entity.isAlive()) {
                 // Apply regeneration effect to pets
                 if (entity.getHealth() < entity.getMaxHealth()) {
                     entity.heal(1.0F);
                 }
             }
 
-            if (isMount && CONFIG.mountRegen && entity.isAlive()) {
+            if (isMount && config.mountRegen && entity.isAlive()) {
                 // Apply regeneration effect to mounts
                 if (entity.getHealth() < entity.getMaxHealth()) {
                     entity.heal(1.0F);
@@ -141,8 +212,8 @@ public class BeastMasterMod implements ModInitializer {
             }
 
             // Apply combat behavior for pets
-            if (isPet && CONFIG.petImmortal) {
-                if (entity.getHealth() <= (entity.getMaxHealth() * CONFIG.healthRequiredToFight / 100.0f)) {
+            if (isPet && config.petImmortal) {
+                if (entity.getHealth() <= (entity.getMaxHealth() * config.healthRequiredToFight / 100.0f)) {
                     // Stop attacking when health is low
                     if (entity instanceof WolfEntity wolf) {
                         wolf.setAngryAt(null); // Clear anger target in 1.18.2
@@ -152,9 +223,9 @@ public class BeastMasterMod implements ModInitializer {
             }
 
             // Apply riding behavior for mounts - BUCK PLAYER OFF when injured!
-            if (isMount && CONFIG.mountImmortal) {
+            if (isMount && config.mountImmortal) {
                 float healthPercent = (entity.getHealth() / entity.getMaxHealth()) * 100;
-                if (healthPercent <= CONFIG.healthRequiredToMove) {
+                if (healthPercent <= config.healthRequiredToMove) {
                     buckPlayerOff(entity);
                 }
             }
@@ -168,11 +239,9 @@ public class BeastMasterMod implements ModInitializer {
         try {
             if (entity.hasPassengers()) {
                 UUID mountId = entity.getUuid();
-                long now = System.currentTimeMillis();
 
                 // Only buck every 2 seconds to avoid spam, but be persistent
-                Long lastBuck = mountBuckCooldowns.get(mountId);
-                if (lastBuck != null && now - lastBuck < 2000) {
+                if (CooldownService.isActive(CooldownService.Category.BUCK, mountId)) {
                     return; // Still on cooldown
                 }
 
@@ -181,14 +250,14 @@ public class BeastMasterMod implements ModInitializer {
                 for (Entity passenger : passengers) {
                     if (passenger instanceof PlayerEntity) {
                         passenger.stopRiding();
-                        mountBuckCooldowns.put(mountId, now); // Set cooldown
+                        CooldownService.start(CooldownService.Category.BUCK, mountId, BUCK_COOLDOWN_TICKS); // Set cooldown
                         LOGGER.debug("Bucked player off injured mount: {}", entity.getUuid());
 
                         // Send message to player (first time or occasionally)
-                        if (passenger instanceof ServerPlayerEntity player) {
-                            if (lastBuck == null || now - lastBuck > 10000) { // Only message every 10 seconds
-                                player.sendMessage(Text.of("§cYour mount is too injured to carry you!"), false);
-                            }
+                        if (passenger instanceof ServerPlayerEntity player &&
+                            !CooldownService.isActive(CooldownService.Category.BUCK_MESSAGE, mountId)) {
+                            player.sendMessage(Text.of("§cYour mount is too injured to carry you!"), false);
+                            CooldownService.start(CooldownService.Category.BUCK_MESSAGE, mountId, BUCK_MESSAGE_COOLDOWN_TICKS);
                         }
                     }
                 }
@@ -198,46 +267,6 @@ public class BeastMasterMod implements ModInitializer {
         }
     }
 
-    // Cooldown management methods
-    public static boolean isPlayerOnCooldown(UUID playerUUID) {
-        if (CONFIG.whistleCooldownSeconds <= 0) return false;
-
-        Long lastUsed = playerWhistleCooldowns.get(playerUUID);
-        if (lastUsed == null) return false;
-
-        long cooldownMillis = CONFIG.whistleCooldownSeconds * 1000L;
-        return System.currentTimeMillis() - lastUsed < cooldownMillis;
-    }
-
-    public static void setPlayerCooldown(UUID playerUUID) {
-        if (CONFIG.whistleCooldownSeconds > 0) {
-            playerWhistleCooldowns.put(playerUUID, System.currentTimeMillis());
-        }
-    }
-
-    public static long getCooldownRemaining(UUID playerUUID) {
-        if (CONFIG.whistleCooldownSeconds <= 0) return 0;
-
-        Long lastUsed = playerWhistleCooldowns.get(playerUUID);
-        if (lastUsed == null) return 0;
-
-        long elapsed = System.currentTimeMillis() - lastUsed;
-        long cooldownMillis = CONFIG.whistleCooldownSeconds * 1000L;
-        return Math.max(0, cooldownMillis - elapsed);
-    }
-
-    private void cleanUpCooldowns() {
-        long now = System.currentTimeMillis();
-        long cooldownMillis = CONFIG.whistleCooldownSeconds * 1000L;
-
-        playerWhistleCooldowns.entrySet().removeIf(entry ->
-            now - entry.getValue() > cooldownMillis + 60000);
-
-        // Also clean up mount buck cooldowns (keep for 30 seconds after last buck)
-        mountBuckCooldowns.entrySet().removeIf(entry ->
-            now - entry.getValue() > 30000);
-    }
-
     // Helper method to check if entity is supported
     public static boolean isSupportedEntity(Entity entity) {
         return BeastConfig.isSupportedPet(entity) || BeastConfig.isSupportedMount(entity);
@@ -245,79 +274,17 @@ public class BeastMasterMod implements ModInitializer {
 
     // Helper method to check if entity is owned
     public static boolean isOwned(Entity entity) {
-        if (entity instanceof Tameable) {
-            Tameable tameable = (Tameable) entity;
-            return tameable.getOwnerUuid() != null; // If it has an owner, it's tamed
-        }
-        // For mounts, check both tamed and owner
-        if (entity instanceof HorseEntity horse) {
-            return horse.isTame() && horse.getOwnerUuid() != null;
-        }
-        if (entity instanceof DonkeyEntity donkey) {
-            return donkey.isTame() && donkey.getOwnerUuid() != null;
-        }
-        if (entity instanceof MuleEntity mule) {
-            return mule.isTame() && mule.getOwnerUuid() != null;
-        }
-        if (entity instanceof LlamaEntity llama) {
-            return llama.isTame() && llama.getOwnerUuid() != null;
-        }
-        // For pigs with saddles
-        if (entity instanceof PigEntity pig && pig.isSaddled() && pig.getFirstPassenger() instanceof PlayerEntity) {
-            return true;
-        }
-        return false;
+        return OwnershipResolvers.get(entity).isOwned(entity);
     }
 
     // Helper method to check if entity is owned by specific player
     public static boolean isOwnedByPlayer(Entity entity, UUID playerUUID) {
-        if (entity instanceof Tameable) {
-            Tameable tameable = (Tameable) entity;
-            return tameable.getOwnerUuid() != null && tameable.getOwnerUuid().equals(playerUUID);
-        }
-        // Use the same logic as the working mount mod:
-        if (entity instanceof HorseEntity horse) {
-            return horse.isTame() && horse.getOwnerUuid() != null && horse.getOwnerUuid().equals(playerUUID);
-        }
-        if (entity instanceof DonkeyEntity donkey) {
-            return donkey.isTame() && donkey.getOwnerUuid() != null && donkey.getOwnerUuid().equals(playerUUID);
-        }
-        if (entity instanceof MuleEntity mule) {
-            return mule.isTame() && mule.getOwnerUuid() != null && mule.getOwnerUuid().equals(playerUUID);
-        }
-        if (entity instanceof LlamaEntity llama) {
-            return llama.isTame() && llama.getOwnerUuid() != null && llama.getOwnerUuid().equals(playerUUID);
-        }
-        // For pigs with saddles
-        if (entity instanceof PigEntity pig && pig.isSaddled() && pig.getFirstPassenger() instanceof PlayerEntity player) {
-            return player.getUuid().equals(playerUUID);
-        }
-        return false;
+        OwnershipResolvers.Resolver resolver = OwnershipResolvers.get(entity);
+        return resolver.isOwned(entity) && playerUUID.equals(resolver.getOwnerUuid(entity));
     }
 
     // Helper method to get owner UUID
     public static UUID getOwnerUuid(Entity entity) {
-        if (entity instanceof Tameable) {
-            Tameable tameable = (Tameable) entity;
-            return tameable.getOwnerUuid();
-        }
-        // For mounts
-        if (entity instanceof HorseEntity horse) {
-            return horse.getOwnerUuid();
-        }
-        if (entity instanceof DonkeyEntity donkey) {
-            return donkey.getOwnerUuid();
-        }
-        if (entity instanceof MuleEntity mule) {
-            return mule.getOwnerUuid();
-        }
-        if (entity instanceof LlamaEntity llama) {
-            return llama.getOwnerUuid();
-        }
-        // For pigs, use the rider as owner
-        if (entity instanceof PigEntity pig && pig.isSaddled() && pig.getFirstPassenger() instanceof PlayerEntity player) {
-            return player.getUuid();
-        }
-        return null;
+        return OwnershipResolvers.get(entity).getOwnerUuid(entity);
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.whipowill.beastmaster;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ChunkTicketType;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+
+import java.util.Comparator;
+import java.util.UUID;
+
+// Loads the chunk a companion was last seen in with a temporary ticket and waits for the real entity,
+// so whistling doesn't leave the original behind as a duplicate of an NBT clone.
+// The chunk loads asynchronously; poll() is called once per tick by the summon job.
+public class ChunkRetrieval {
+    // Keyed by entity UUID so two retrievals in the same chunk don't share (and release) one ticket.
+    // The expiry only matters if a retrieval is never released, e.g. the server stops mid-summon.
+    public static final ChunkTicketType<UUID> TICKET_TYPE =
+        ChunkTicketType.create("beastmaster_retrieval", Comparator.naturalOrder(), 20 * 60);
+    // Level 33 (border): the chunk and its entities are loaded but nothing in it ticks. Radius 1 would
+    // make the center chunk block-ticking.
+    private static final int TICKET_RADIUS = 0;
+
+    private static int inFlight = 0;
+
+    public final PackManager.EntityData entityData;
+    private final ServerWorld world;
+    private final ChunkPos chunkPos;
+    private int ticksWaited = 0;
+    private boolean released = false;
+
+    private ChunkRetrieval(PackManager.EntityData entityData, ServerWorld world) {
+        this.entityData = entityData;
+        this.world = world;
+        this.chunkPos = new ChunkPos(MathHelper.floor(entityData.x) >> 4, MathHelper.floor(entityData.z) >> 4);
+    }
+
+    // Null when the retrieval limit is reached or the recorded dimension no longer exists
+    public static ChunkRetrieval start(MinecraftServer server, PackManager.EntityData entityData) {
+        if (!hasFreeSlot()) return null;
+
+        ServerWorld world = server.getWorld(entityData.dimension);
+        if (world == null) return null;
+
+        ChunkRetrieval retrieval = new ChunkRetrieval(entityData, world);
+        world.getChunkManager().addTicket(TICKET_TYPE, retrieval.chunkPos, TICKET_RADIUS, entityData.entityUuid);
+        inFlight++;
+        return retrieval;
+    }
+
+    public static boolean hasFreeSlot() {
+        return inFlight < Math.max(1, BeastMasterMod.CONFIG.maxConcurrentChunkRetrievals);
+    }
+
+    public static int getInFlight() {
+        return inFlight;
+    }
+
+    // The real entity once its chunk has loaded, otherwise null
+    public Entity poll() {
+        ticksWaited++;
+        Entity entity = world.getEntity(entityData.entityUuid);
+        return entity != null && !entity.isRemoved() ? entity : null;
+    }
+
+    // The entity wasn't in its recorded chunk (moved, died) or the load is too slow
+    public boolean isTimedOut() {
+        return ticksWaited >= BeastMasterMod.CONFIG.chunkRetrievalTimeoutTicks;
+    }
+
+    public void release() {
+        if (released) return;
+
+        released = true;
+        inFlight--;
+        world.getChunkManager().removeTicket(TICKET_TYPE, chunkPos, TICKET_RADIUS, entityData.entityUuid);
+    }
+}
@@ -0,0 +1,8 @@
+package com.whipowill.beastmaster;
+
+// Implemented on LivingEntity by GenericPetMountMixin to cache each entity's CompanionState
+public interface CompanionHolder {
+    CompanionState beastmaster$getCompanionState();
+
+    void beastmaster$setCompanionState(CompanionState state);
+}
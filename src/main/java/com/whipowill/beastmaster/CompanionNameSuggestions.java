@@ -0,0 +1,65 @@
+package com.whipowill.beastmaster;
+
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.suggestion.SuggestionProvider;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+// Tab completion for pet and mount names. The owner's names are read from the registry's cached
+// snapshot on the server thread; matching and ranking run off-thread so large packs don't stall typing.
+public class CompanionNameSuggestions implements SuggestionProvider<ServerCommandSource> {
+    private static final int MAX_SUGGESTIONS = 50;
+
+    public static final CompanionNameSuggestions PETS = new CompanionNameSuggestions(true);
+    public static final CompanionNameSuggestions MOUNTS = new CompanionNameSuggestions(false);
+
+    private final boolean pets;
+
+    private CompanionNameSuggestions(boolean pets) {
+        this.pets = pets;
+    }
+
+    @Override
+    public CompletableFuture<Suggestions> getSuggestions(CommandContext<ServerCommandSource> context, SuggestionsBuilder builder) {
+        if (!(context.getSource().getEntity() instanceof ServerPlayerEntity player)) {
+            return builder.buildFuture();
+        }
+
+        List<String> names = PackManager.get(player.getServer()).getNameSnapshot(player.getUuid(), pets);
+        if (names.isEmpty()) {
+            return builder.buildFuture();
+        }
+
+        String typed = builder.getRemaining().trim().toLowerCase(Locale.ROOT);
+        return CompletableFuture.supplyAsync(() -> {
+            // Names starting with what was typed come first, then names merely containing it
+            List<String> startsWith = new ArrayList<>();
+            List<String> contains = new ArrayList<>();
+            for (String name : names) {
+                String folded = name.toLowerCase(Locale.ROOT);
+                if (folded.startsWith(typed)) {
+                    startsWith.add(name);
+                } else if (folded.contains(typed)) {
+                    contains.add(name);
+                }
+                if (startsWith.size() >= MAX_SUGGESTIONS) break;
+            }
+
+            int suggested = 0;
+            for (List<String> group : List.of(startsWith, contains)) {
+                for (String name : group) {
+                    if (suggested++ >= MAX_SUGGESTIONS) return builder.build();
+                    builder.suggest(name);
+                }
+            }
+            return builder.build();
+        });
+    }
+}
@@ -0,0 +1,69 @@
+package com.whipowill.beastmaster;
+
+import net.minecraft.entity.Entity;
+
+import java.util.UUID;
+
+// What the mod knows about one entity: role and ownership. Cached on the
+// entity through CompanionHolder, dropped on tame/untame/owner/rider changes and for every entity at
+// once (via the epoch) when the supported-entity configuration changes.
+public final class CompanionState {
+    private static int epoch = 0;
+    private static CompanionState none = new CompanionState(false, false, false, null, 0);
+
+    public final boolean pet;
+    public final boolean mount;
+    public final boolean owned;
+    public final UUID ownerUuid;
+    final int stateEpoch;
+
+    private CompanionState(boolean pet, boolean mount, boolean owned, UUID ownerUuid, int stateEpoch) {
+        this.pet = pet;
+        this.mount = mount;
+        this.owned = owned;
+        this.ownerUuid = ownerUuid;
+        this.stateEpoch = stateEpoch;
+    }
+
+    public boolean isCompanion() {
+        return pet || mount;
+    }
+
+    public boolean isCurrent() {
+        return stateEpoch == epoch;
+    }
+
+    public static CompanionState get(Entity entity) {
+        if (!(entity instanceof CompanionHolder holder)) {
+            return compute(entity);
+        }
+
+        CompanionState state = holder.beastmaster$getCompanionState();
+        if (state == null || state.stateEpoch != epoch) {
+            state = compute(entity);
+            holder.beastmaster$setCompanionState(state);
+        }
+        return state;
+    }
+
+    public static void invalidate(Entity entity) {
+        if (entity instanceof CompanionHolder holder) {
+            holder.beastmaster$setCompanionState(null);
+        }
+    }
+
+    // Supported types changed; every cached state is stale
+    public static void invalidateAll() {
+        epoch++;
+        none = new CompanionState(false, false, false, null, epoch);
+    }
+
+    private static CompanionState compute(Entity entity) {
+        boolean pet = BeastConfig.isSupportedPet(entity);
+        boolean mount = BeastConfig.isSupportedMount(entity);
+        if (!pet && !mount) {
+            return none;
+        }
+        return new CompanionState(pet, mount, BeastMasterMod.isOwned(entity), BeastMasterMod.getOwnerUuid(entity), epoch);
+    }
+}
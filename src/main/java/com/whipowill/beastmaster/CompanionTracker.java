@@ -0,0 +1,62 @@
+package com.whipowill.beastmaster;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.server.world.ServerWorld;
+
+import java.util.*;
+
+// Live set of loaded, owned companions so periodic passes don't have to sweep every entity in every world.
+// Maintained from entity load/unload events plus the tame/owner/rider hooks in the mixins package.
+public class CompanionTracker {
+    private static final Map<UUID, LivingEntity> liveCompanions = new LinkedHashMap<>();
+
+    // Called from ENTITY_LOAD once the caller has already checked type and ownership
+    public static void track(Entity entity) {
+        if (entity instanceof LivingEntity living && !entity.isRemoved()) {
+            liveCompanions.put(entity.getUuid(), living);
+        }
+    }
+
+    public static void untrack(Entity entity) {
+        // Only drop this exact instance; a dimension change may already have loaded its replacement
+        liveCompanions.remove(entity.getUuid(), entity);
+    }
+
+    // Re-evaluate an entity after a tame/untame, owner or rider change
+    public static void refresh(Entity entity) {
+        if (!(entity instanceof LivingEntity) || !(entity.getWorld() instanceof ServerWorld world)) return;
+
+        if (!entity.isRemoved() && BeastMasterMod.isSupportedEntity(entity) && BeastMasterMod.isOwned(entity)) {
+            // Owner fields are also set while reading NBT, before the entity is in a world
+            if (world.getEntity(entity.getUuid()) == entity) {
+                track(entity);
+            }
+        } else {
+            untrack(entity);
+        }
+    }
+
+    // Copy of the live set, pruning anything that stopped qualifying without us hearing about it
+    public static List<LivingEntity> getLiveCompanions() {
+        List<LivingEntity> result = new ArrayList<>(liveCompanions.size());
+        Iterator<LivingEntity> iterator = liveCompanions.values().iterator();
+        while (iterator.hasNext()) {
+            LivingEntity entity = iterator.next();
+            if (entity.isRemoved() || !BeastMasterMod.isOwned(entity)) {
+                iterator.remove();
+            } else {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    public static int size() {
+        return liveCompanions.size();
+    }
+
+    public static void clear() {
+        liveCompanions.clear();
+    }
+}
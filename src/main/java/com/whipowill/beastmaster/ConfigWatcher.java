@@ -0,0 +1,123 @@
+package com.whipowill.beastmaster;
+
+import net.minecraft.server.MinecraftServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+// With watchConfigFile on, reloads config/beastmaster.json whenever it is edited, the same way
+// '/beast reload' does. Editors tend to write a file in several steps, so changes are collected for a
+// moment before reading. Writes made by the mod itself are recognised by their content and skipped.
+public class ConfigWatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BeastMaster");
+    private static final long SETTLE_MILLIS = 500;
+
+    private static volatile String ignoredContent = null;
+    private static WatchService watchService = null;
+    private static Thread thread = null;
+
+    static void ignoreContent(String json) {
+        ignoredContent = json;
+    }
+
+    public static boolean isRunning() {
+        return thread != null;
+    }
+
+    // Starts or stops the watcher to match the config; server thread
+    public static void update(MinecraftServer server, BeastConfig config) {
+        if (config.watchConfigFile && !isRunning()) {
+            start(server);
+        } else if (!config.watchConfigFile && isRunning()) {
+            stop();
+        }
+    }
+
+    private static void start(MinecraftServer server) {
+        Path directory = BeastConfig.CONFIG_PATH.toAbsolutePath().getParent();
+        try {
+            Files.createDirectories(directory);
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            LOGGER.error("Failed to watch {} for config changes", directory, e);
+            watchService = null;
+            return;
+        }
+
+        WatchService service = watchService;
+        thread = new Thread(() -> watch(server, service), "BeastMaster-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("Watching {} for changes", BeastConfig.CONFIG_PATH);
+    }
+
+    public static void stop() {
+        if (watchService == null) return;
+        try {
+            // Wakes the watcher thread, which then exits
+            watchService.close();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to close config watcher", e);
+        }
+        watchService = null;
+        thread = null;
+    }
+
+    private static void watch(MinecraftServer server, WatchService service) {
+        Path fileName = BeastConfig.CONFIG_PATH.getFileName();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = collect(key, fileName);
+
+                // Let the editor finish writing, and fold the rest of its writes into this reload
+                WatchKey more;
+                while ((more = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= collect(more, fileName);
+                }
+                if (!changed) continue;
+
+                String content;
+                try {
+                    content = Files.readString(BeastConfig.CONFIG_PATH);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not read {} after a change", BeastConfig.CONFIG_PATH, e);
+                    continue;
+                }
+                if (content.equals(ignoredContent)) continue;
+                ignoredContent = content;
+
+                BeastConfig.reload(server).whenComplete((config, error) -> {
+                    if (error != null) {
+                        LOGGER.error("Config change not applied, keeping the current config: {}", error.getMessage());
+                    } else {
+                        update(server, config);
+                    }
+                });
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+
+    private static boolean collect(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+}
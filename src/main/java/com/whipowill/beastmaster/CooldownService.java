@@ -0,0 +1,172 @@
+package com.whipowill.beastmaster;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Expiring per-key cooldowns on a hierarchical timing wheel driven by server ticks.
+// Start, check and expiry are O(1); an entry is unlinked from its wheel slot the tick it runs out,
+// so memory follows the number of active cooldowns rather than a periodic purge.
+// Levels: 256 one-tick slots, then 3 x 64 slots of 256, 16384 and 1048576 ticks.
+public class CooldownService {
+    public enum Category {
+        WHISTLE,
+        BUCK,
+        BUCK_MESSAGE,
+        FIND
+    }
+
+    private static final int[] SHIFT = {0, 8, 14, 20};
+    private static final int[] MASK = {255, 63, 63, 63};
+    // Longest cooldown the wheel can hold (about 38 days of ticks)
+    static final int MAX_DELAY = (1 << 26) - 1;
+    // Safety cap per category; keys are players and companions, so this is never reached in practice
+    private static final int MAX_ENTRIES_PER_CATEGORY = 16384;
+
+    // Intrusive list node; prev/next link the entries sharing a wheel slot
+    private static final class Entry {
+        final Category category;
+        final UUID key;
+        long expiresAt;
+        int level;
+        int slot;
+        Entry prev;
+        Entry next;
+
+        Entry(Category category, UUID key) {
+            this.category = category;
+            this.key = key;
+        }
+    }
+
+    private static final Entry[][] wheel = {new Entry[256], new Entry[64], new Entry[64], new Entry[64]};
+    private static final Map<Category, Map<UUID, Entry>> active = new EnumMap<>(Category.class);
+    private static long now = 0;
+
+    static {
+        for (Category category : Category.values()) {
+            active.put(category, new HashMap<>());
+        }
+    }
+
+    // (Re)start a cooldown; returns false if the category is full and the cooldown wasn't recorded
+    public static boolean start(Category category, UUID key, int ticks) {
+        if (ticks <= 0) {
+            cancel(category, key);
+            return true;
+        }
+
+        Map<UUID, Entry> entries = active.get(category);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            unlink(entry);
+        } else {
+            if (entries.size() >= MAX_ENTRIES_PER_CATEGORY) return false;
+            entry = new Entry(category, key);
+            entries.put(key, entry);
+        }
+        entry.expiresAt = now + Math.min(ticks, MAX_DELAY);
+        link(entry);
+        return true;
+    }
+
+    public static boolean isActive(Category category, UUID key) {
+        return active.get(category).containsKey(key);
+    }
+
+    public static long getRemainingTicks(Category category, UUID key) {
+        Entry entry = active.get(category).get(key);
+        return entry != null ? entry.expiresAt - now : 0;
+    }
+
+    public static void cancel(Category category, UUID key) {
+        Entry entry = active.get(category).remove(key);
+        if (entry != null) {
+            unlink(entry);
+        }
+    }
+
+    public static int size(Category category) {
+        return active.get(category).size();
+    }
+
+    // Advance the wheel by one tick; called once per server tick
+    public static void tick() {
+        now++;
+
+        // Pull the next block of each coarser level down before expiring, highest level first
+        if ((now & 0xFFFFF) == 0) cascade(3);
+        if ((now & 0x3FFF) == 0) cascade(2);
+        if ((now & 0xFF) == 0) cascade(1);
+
+        int slot = (int) (now & MASK[0]);
+        Entry entry = wheel[0][slot];
+        wheel[0][slot] = null;
+        while (entry != null) {
+            Entry next = entry.next;
+            entry.prev = null;
+            entry.next = null;
+            if (entry.expiresAt <= now) {
+                active.get(entry.category).remove(entry.key);
+            } else {
+                link(entry);
+            }
+            entry = next;
+        }
+    }
+
+    public static void clear() {
+        for (Entry[] level : wheel) {
+            Arrays.fill(level, null);
+        }
+        for (Map<UUID, Entry> entries : active.values()) {
+            entries.clear();
+        }
+        now = 0;
+    }
+
+    private static void cascade(int level) {
+        int slot = (int) (now >>> SHIFT[level]) & MASK[level];
+        Entry entry = wheel[level][slot];
+        wheel[level][slot] = null;
+        while (entry != null) {
+            Entry next = entry.next;
+            entry.prev = null;
+            entry.next = null;
+            link(entry);
+            entry = next;
+        }
+    }
+
+    private static void link(Entry entry) {
+        long delay = entry.expiresAt - now;
+        int level = delay < (1L << SHIFT[1]) ? 0 :
+                    delay < (1L << SHIFT[2]) ? 1 :
+                    delay < (1L << SHIFT[3]) ? 2 : 3;
+        int slot = (int) (entry.expiresAt >>> SHIFT[level]) & MASK[level];
+
+        entry.level = level;
+        entry.slot = slot;
+        entry.prev = null;
+        entry.next = wheel[level][slot];
+        if (entry.next != null) {
+            entry.next.prev = entry;
+        }
+        wheel[level][slot] = entry;
+    }
+
+    private static void unlink(Entry entry) {
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else if (wheel[entry.level][entry.slot] == entry) {
+            wheel[entry.level][entry.slot] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+    }
+}
@@ -0,0 +1,29 @@
+package com.whipowill.beastmaster;
+
+import java.util.UUID;
+
+// Whether damage to an owned companion goes through. Kept apart from the damage hook so that
+// WorkloadReplayer applies exactly the same rules to recorded damage.
+public final class DamageRules {
+    public enum Outcome { ALLOW, FRIENDLY_FIRE, IMMORTAL }
+
+    private DamageRules() {
+    }
+
+    // attackerUuid is whoever dealt the damage, null for environmental damage
+    public static Outcome decide(BeastConfig config, boolean pet, boolean mount, UUID ownerUuid, UUID attackerUuid,
+                                 float health, float amount) {
+        if (config == null) return Outcome.ALLOW;
+
+        if (config.disableFriendlyFire && attackerUuid != null && attackerUuid.equals(ownerUuid)) {
+            return Outcome.FRIENDLY_FIRE;
+        }
+
+        // If immortal and health would drop below 1, cancel the damage
+        boolean immortal = (pet && config.petImmortal) || (mount && config.mountImmortal);
+        if (immortal && health - amount <= 0) {
+            return Outcome.IMMORTAL;
+        }
+        return Outcome.ALLOW;
+    }
+}
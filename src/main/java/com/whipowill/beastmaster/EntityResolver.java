@@ -0,0 +1,78 @@
+package com.whipowill.beastmaster;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.registry.RegistryKey;
+import net.minecraft.world.World;
+
+import java.util.*;
+
+// Finds registered companions among loaded entities in batches. Each record is looked up in the
+// dimension it was last seen in first; only misses are tried against the other worlds.
+public class EntityResolver {
+    private static long hintHits = 0;
+    private static long fallbackHits = 0;
+    private static long misses = 0;
+
+    // Loaded entities by UUID; records that aren't loaded anywhere are absent
+    public static Map<UUID, Entity> resolveAll(MinecraftServer server, Collection<PackManager.EntityData> targets) {
+        Map<UUID, Entity> found = new HashMap<>();
+        Map<RegistryKey<World>, List<PackManager.EntityData>> byDimension = new LinkedHashMap<>();
+        for (PackManager.EntityData entityData : targets) {
+            byDimension.computeIfAbsent(entityData.dimension, dimension -> new ArrayList<>()).add(entityData);
+        }
+
+        List<PackManager.EntityData> missed = new ArrayList<>();
+        for (Map.Entry<RegistryKey<World>, List<PackManager.EntityData>> entry : byDimension.entrySet()) {
+            // A dimension from a removed datapack or mod no longer has a world
+            ServerWorld world = server.getWorld(entry.getKey());
+            for (PackManager.EntityData entityData : entry.getValue()) {
+                Entity entity = world != null ? world.getEntity(entityData.entityUuid) : null;
+                if (entity != null) {
+                    found.put(entityData.entityUuid, entity);
+                    hintHits++;
+                } else {
+                    missed.add(entityData);
+                }
+            }
+        }
+
+        if (!missed.isEmpty()) {
+            for (ServerWorld world : server.getWorlds()) {
+                Iterator<PackManager.EntityData> iterator = missed.iterator();
+                while (iterator.hasNext()) {
+                    PackManager.EntityData entityData = iterator.next();
+                    if (world.getRegistryKey().equals(entityData.dimension)) continue;
+
+                    Entity entity = world.getEntity(entityData.entityUuid);
+                    if (entity != null) {
+                        found.put(entityData.entityUuid, entity);
+                        fallbackHits++;
+                        iterator.remove();
+                    }
+                }
+                if (missed.isEmpty()) break;
+            }
+            misses += missed.size();
+        }
+        return found;
+    }
+
+    public static Entity resolve(MinecraftServer server, PackManager.EntityData entityData) {
+        return resolveAll(server, List.of(entityData)).get(entityData.entityUuid);
+    }
+
+    // Found where the registry said / found in another dimension (stale hint) / not loaded at all
+    public static long getHintHits() {
+        return hintHits;
+    }
+
+    public static long getFallbackHits() {
+        return fallbackHits;
+    }
+
+    public static long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,96 @@
+package com.whipowill.beastmaster;
+
+import it.unimi.dsi.fastutil.objects.Reference2ByteOpenHashMap;
+import net.minecraft.entity.EntityType;
+import net.minecraft.tag.TagKey;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.InvalidIdentifierException;
+import net.minecraft.util.registry.Registry;
+import net.minecraft.util.registry.RegistryEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Configured pet/mount ids resolved to EntityType instances once, so classifying an entity is a single
+// identity-hash lookup instead of building its id string. Entries starting with '#' are entity type tags.
+// The vanilla companions are always in the table, whatever the config lists. Immutable: a new table is
+// built whenever the config or the tags change.
+public final class EntityRoles {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BeastMaster");
+
+    public static final byte NONE = 0;
+    public static final byte PET = 1;
+    public static final byte MOUNT = 2;
+    // Vanilla mount that only counts once it's tamed (saddled, for pigs); MOUNT on the same type wins
+    public static final byte TAMED_MOUNT = 4;
+
+    public static final EntityRoles EMPTY = new EntityRoles(new Reference2ByteOpenHashMap<>());
+
+    private final Reference2ByteOpenHashMap<EntityType<?>> roles;
+
+    private EntityRoles(Reference2ByteOpenHashMap<EntityType<?>> roles) {
+        this.roles = roles;
+        this.roles.defaultReturnValue(NONE);
+    }
+
+    public static EntityRoles build(String[] petEntities, String[] mountEntities) {
+        Reference2ByteOpenHashMap<EntityType<?>> roles = new Reference2ByteOpenHashMap<>();
+        for (EntityType<?> type : new EntityType<?>[] {EntityType.WOLF, EntityType.CAT, EntityType.PARROT}) {
+            add(roles, type, PET);
+        }
+        for (EntityType<?> type : new EntityType<?>[] {EntityType.HORSE, EntityType.DONKEY, EntityType.MULE,
+                EntityType.LLAMA, EntityType.TRADER_LLAMA, EntityType.PIG}) {
+            add(roles, type, TAMED_MOUNT);
+        }
+        addAll(roles, petEntities, PET);
+        addAll(roles, mountEntities, MOUNT);
+        roles.trim();
+        return new EntityRoles(roles);
+    }
+
+    private static void addAll(Reference2ByteOpenHashMap<EntityType<?>> roles, String[] ids, byte role) {
+        if (ids == null) return;
+
+        for (String id : ids) {
+            try {
+                if (id.startsWith("#")) {
+                    // Unbound until datapacks load; the table is rebuilt when the server starts and on reload
+                    TagKey<EntityType<?>> tag = TagKey.of(Registry.ENTITY_TYPE_KEY, new Identifier(id.substring(1)));
+                    for (RegistryEntry<EntityType<?>> entry : Registry.ENTITY_TYPE.iterateEntries(tag)) {
+                        add(roles, entry.value(), role);
+                    }
+                } else {
+                    Identifier identifier = new Identifier(id);
+                    if (Registry.ENTITY_TYPE.containsId(identifier)) {
+                        add(roles, Registry.ENTITY_TYPE.get(identifier), role);
+                    } else {
+                        LOGGER.debug("Configured entity {} is not registered, skipping", id);
+                    }
+                }
+            } catch (InvalidIdentifierException e) {
+                LOGGER.warn("Ignoring invalid entity id in config: {}", id);
+            }
+        }
+    }
+
+    private static void add(Reference2ByteOpenHashMap<EntityType<?>> roles, EntityType<?> type, byte role) {
+        roles.put(type, (byte) (roles.getByte(type) | role));
+    }
+
+    // Role bits of a type, NONE if it isn't supported at all
+    public byte get(EntityType<?> type) {
+        return roles.getByte(type);
+    }
+
+    public boolean isPet(EntityType<?> type) {
+        return (roles.getByte(type) & PET) != 0;
+    }
+
+    // Type only: a vanilla mount counts here even if this particular one isn't tamed
+    public boolean isMount(EntityType<?> type) {
+        return (roles.getByte(type) & (MOUNT | TAMED_MOUNT)) != 0;
+    }
+
+    public int size() {
+        return roles.size();
+    }
+}
@@ -0,0 +1,125 @@
+package com.whipowill.beastmaster;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.Text;
+import net.minecraft.util.registry.RegistryKey;
+import net.minecraft.world.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Resumable '/beast pet|mount find': walks the loaded entities of each dimension a slice per tick
+public class EntitySearchJob implements TickJobs.Job {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BeastMaster");
+    private static final int ENTITIES_PER_TIME_CHECK = 64;
+    private static final int PROGRESS_INTERVAL_TICKS = 20;
+
+    private final UUID playerUuid;
+    private final boolean searchPets;
+    private final List<RegistryKey<World>> worldKeys = new ArrayList<>();
+    private int worldIndex = 0;
+    private List<Entity> pending = null;
+    private int cursor = 0;
+    private int checked = 0;
+    private int registered = 0;
+    private int ticksRun = 0;
+
+    private EntitySearchJob(MinecraftServer server, UUID playerUuid, boolean searchPets) {
+        this.playerUuid = playerUuid;
+        this.searchPets = searchPets;
+        for (ServerWorld world : server.getWorlds()) {
+            worldKeys.add(world.getRegistryKey());
+        }
+    }
+
+    public static String jobKey(UUID playerUuid) {
+        return "find:" + playerUuid;
+    }
+
+    public static boolean start(ServerPlayerEntity player, boolean searchPets) {
+        return TickJobs.submit(jobKey(player.getUuid()), new EntitySearchJob(player.getServer(), player.getUuid(), searchPets));
+    }
+
+    @Override
+    public boolean tick(MinecraftServer server) {
+        ServerPlayerEntity player = server.getPlayerManager().getPlayer(playerUuid);
+        if (player == null) {
+            LOGGER.debug("Dropping entity search for {}: player left", playerUuid);
+            return true;
+        }
+
+        long deadline = System.nanoTime() + BeastMasterMod.CONFIG.findTickBudgetMillis * 1_000_000L;
+        PackManager manager = PackManager.get(server);
+        ticksRun++;
+
+        while (System.nanoTime() < deadline) {
+            if (pending == null) {
+                if (worldIndex >= worldKeys.size()) {
+                    finish(player);
+                    return true;
+                }
+
+                // Copying references is cheap; the type/ownership checks and snapshots are what get sliced
+                ServerWorld world = server.getWorld(worldKeys.get(worldIndex++));
+                if (world == null) continue;
+
+                pending = new ArrayList<>();
+                for (Entity entity : world.iterateEntities()) {
+                    pending.add(entity);
+                }
+                cursor = 0;
+                continue;
+            }
+
+            int end = Math.min(cursor + ENTITIES_PER_TIME_CHECK, pending.size());
+            for (; cursor < end; cursor++) {
+                Entity entity = pending.get(cursor);
+                checked++;
+                if (matches(entity)) {
+                    manager.storeEntityNbt(entity);
+                    registered++;
+                    LOGGER.debug("Registered {} ({}) for {}", entity.getUuid(),
+                        entity.getType().getTranslationKey(), playerUuid);
+                }
+            }
+
+            if (cursor >= pending.size()) {
+                pending = null;
+            }
+        }
+
+        if (player != null && ticksRun % PROGRESS_INTERVAL_TICKS == 0) {
+            player.sendMessage(Text.of("§7Searching... " + checked + " entities checked, " +
+                registered + " registered"), true);
+        }
+        return false;
+    }
+
+    private boolean matches(Entity entity) {
+        // Entities can unload or die between the snapshot and the slice that reaches them
+        if (entity.isRemoved() || !entity.isAlive()) return false;
+
+        boolean isCorrectType = searchPets ?
+            BeastConfig.isSupportedPet(entity) :
+            BeastConfig.isSupportedMount(entity);
+        return isCorrectType && BeastMasterMod.isOwnedByPlayer(entity, playerUuid);
+    }
+
+    private void finish(ServerPlayerEntity player) {
+        String type = searchPets ? "pet" : "mount";
+        LOGGER.info("Entity search for {} complete: checked {}, registered {} {}s in {} ticks",
+            playerUuid, checked, registered, type, ticksRun);
+
+        if (registered > 0) {
+            player.sendMessage(Text.of("§aFound and registered " + registered + " " + type + (registered > 1 ? "s" : "") + "!"), false);
+        } else {
+            player.sendMessage(Text.of("§cNo " + type + "s found to register. Make sure you have tamed " + type + "s nearby."), false);
+        }
+    }
+}
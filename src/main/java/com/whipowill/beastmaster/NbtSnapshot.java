@@ -0,0 +1,63 @@
+package com.whipowill.beastmaster;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Entity NBT held as a deflated byte array instead of a live NbtCompound tree. Inflated only when the
+// entity actually has to be recreated. Immutable, so it can be shared with the storage thread as is.
+public final class NbtSnapshot {
+    private final byte[] data;
+    private final int rawSize;
+
+    private NbtSnapshot(byte[] data, int rawSize) {
+        this.data = data;
+        this.rawSize = rawSize;
+    }
+
+    public static NbtSnapshot of(NbtCompound nbt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            DataOutputStream output = new DataOutputStream(new DeflaterOutputStream(bytes, deflater));
+            NbtIo.write(nbt, output);
+            int rawSize = output.size();
+            output.close();
+            return new NbtSnapshot(bytes.toByteArray(), rawSize);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // For data read back from storage; the array must not be modified afterwards
+    public static NbtSnapshot fromBytes(byte[] data, int rawSize) {
+        return new NbtSnapshot(data, rawSize);
+    }
+
+    public NbtCompound inflate() throws IOException {
+        try (DataInputStream input = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            return NbtIo.read(input);
+        }
+    }
+
+    public byte[] getBytes() {
+        return data;
+    }
+
+    public int getCompressedSize() {
+        return data.length;
+    }
+
+    // Size of the uncompressed NBT encoding
+    public int getRawSize() {
+        return rawSize;
+    }
+}
@@ -0,0 +1,145 @@
+package com.whipowill.beastmaster;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.Tameable;
+import net.minecraft.entity.passive.HorseBaseEntity;
+import net.minecraft.entity.passive.PigEntity;
+import net.minecraft.entity.player.PlayerEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Ownership lookup keyed by entity class. The resolver for a class is worked out once and cached in a
+// ClassValue, so each check is a single dispatch instead of an instanceof chain.
+// Other mods can add their own mounts or pets with register(), ideally from their initializer.
+public final class OwnershipResolvers {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BeastMaster");
+
+    public interface Resolver {
+        // Owner of the entity, or null if it has none
+        UUID getOwnerUuid(Entity entity);
+
+        // Whether the entity counts as owned; some types keep an owner without being tamed
+        default boolean isOwned(Entity entity) {
+            return getOwnerUuid(entity) != null;
+        }
+    }
+
+    private static final Resolver NONE = entity -> null;
+
+    private static final Resolver TAMEABLE = entity -> ((Tameable) entity).getOwnerUuid();
+
+    // Covers horses, donkeys, mules, llamas and any modded HorseBaseEntity subclass
+    private static final Resolver HORSE = new Resolver() {
+        @Override
+        public UUID getOwnerUuid(Entity entity) {
+            return ((HorseBaseEntity) entity).getOwnerUuid();
+        }
+
+        @Override
+        public boolean isOwned(Entity entity) {
+            HorseBaseEntity horse = (HorseBaseEntity) entity;
+            return horse.isTame() && horse.getOwnerUuid() != null;
+        }
+    };
+
+    // For pigs with saddles, the rider is the owner
+    private static final Resolver PIG = entity -> {
+        PigEntity pig = (PigEntity) entity;
+        if (pig.isSaddled() && pig.getFirstPassenger() instanceof PlayerEntity player) {
+            return player.getUuid();
+        }
+        return null;
+    };
+
+    private static final Map<Class<?>, Resolver> registered = new LinkedHashMap<>();
+    private static final Set<Class<?>> resolvedClasses = ConcurrentHashMap.newKeySet();
+
+    private static final ClassValue<Resolver> RESOLVERS = new ClassValue<>() {
+        @Override
+        protected Resolver computeValue(Class<?> type) {
+            resolvedClasses.add(type);
+            return lookup(type);
+        }
+    };
+
+    static {
+        register(Tameable.class, TAMEABLE);
+        register(HorseBaseEntity.class, HORSE);
+        register(PigEntity.class, PIG);
+    }
+
+    private OwnershipResolvers() {
+    }
+
+    public static synchronized void register(Class<?> type, Resolver resolver) {
+        registered.put(type, resolver);
+        // Forget anything already worked out, a subclass may now resolve differently
+        for (Class<?> resolved : resolvedClasses) {
+            RESOLVERS.remove(resolved);
+        }
+        resolvedClasses.clear();
+    }
+
+    public static Resolver get(Entity entity) {
+        return RESOLVERS.get(entity.getClass());
+    }
+
+    private static synchronized Resolver lookup(Class<?> type) {
+        // Most specific registered superclass first, then registered interfaces
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            Resolver resolver = registered.get(current);
+            if (resolver != null) {
+                return resolver;
+            }
+        }
+        for (Map.Entry<Class<?>, Resolver> entry : registered.entrySet()) {
+            if (entry.getKey().isInterface() && entry.getKey().isAssignableFrom(type)) {
+                return entry.getValue();
+            }
+        }
+
+        Resolver reflective = findOwnerAccessor(type);
+        return reflective != null ? reflective : NONE;
+    }
+
+    // Mod API fallback: an entity type without a registered resolver can expose its owner through a
+    // public getOwnerUuid(), getOwnerUUID() or getOwnerId() returning a UUID, declared by the mod itself
+    // (the names are looked up at runtime, so vanilla's remapped methods never match). The owner is only
+    // reported while the entity's type is listed in supportedPetEntities or supportedMountEntities, so an
+    // unrelated modded entity with such a method is never treated as a companion.
+    private static Resolver findOwnerAccessor(Class<?> type) {
+        if (!Entity.class.isAssignableFrom(type)) return null;
+
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        for (String name : new String[] {"getOwnerUuid", "getOwnerUUID", "getOwnerId"}) {
+            try {
+                MethodHandle handle = lookup.findVirtual(type, name, MethodType.methodType(UUID.class));
+                LOGGER.debug("Using {}.{}() to resolve ownership", type.getName(), name);
+                return entity -> {
+                    if (!isConfiguredType(entity)) return null;
+                    try {
+                        return (UUID) handle.invoke(entity);
+                    } catch (Throwable e) {
+                        return null;
+                    }
+                };
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                // Try the next name
+            }
+        }
+        return null;
+    }
+
+    private static boolean isConfiguredType(Entity entity) {
+        return BeastConfig.isSupportedPetType(entity.getType()) || BeastConfig.isSupportedMountType(entity.getType());
+    }
+}
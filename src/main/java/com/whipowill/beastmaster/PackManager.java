@@ -1,10 +1,22 @@
 package com.whipowill.beastmaster;
 
+import com.whipowill.beastmaster.jfr.RegistryLoadEvent;
+import com.whipowill.beastmaster.jfr.RegistrySaveEvent;
+import com.whipowill.beastmaster.jfr.SnapshotEvent;
+import com.whipowill.beastmaster.mixins.HorseBaseEntityAccessor;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityType;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.entity.passive.HorseBaseEntity;
+import net.minecraft.entity.passive.TameableEntity;
+import net.minecraft.inventory.SimpleInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtList;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.WorldSavePath;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.PersistentState;
 import net.minecraft.util.registry.RegistryKey;
@@ -12,11 +24,24 @@ import net.minecraft.world.World;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.function.Supplier;
 
 public class PackManager extends PersistentState {
     private static final Logger LOGGER = LoggerFactory.getLogger("PackManager");
     private static final String ENTITIES_KEY = "beastmaster_entities";
+    private static final String LEGACY_MIGRATED_KEY = "legacyMigrated";
+    private static final String STORAGE_KEY = "storage";
+    private static final String STORAGE_ASYNC = "async";
+    private static final String PENDING_ACTIONS_KEY = "pendingActions";
+
+    // Server-wide registry lives on the overworld; the old per-dimension files are merged into it once
+    private static final String REGISTRY_ID = "beastmaster_registry";
+    private static final String LEGACY_ID = "beastmaster_data";
+
+    // Re-serialize unchanged companions at least this often, for state the fingerprint doesn't cover
+    private static final long SNAPSHOT_MAX_AGE_MS = 5 * 60 * 1000L;
 
     public static class EntityData {
         public final UUID entityUuid;
@@ -24,9 +49,12 @@ public class PackManager extends PersistentState {
         public final RegistryKey<World> dimension;
         public final double x, y, z;
         public final long timestamp;
-        public NbtCompound entityNbt;
+        // Deflated entity NBT; use getEntityNbt() to get a tree back
+        public NbtSnapshot snapshot;
         public String customName;
         public boolean isPet;
+        // Cheap summary of the state the snapshot was taken from; not persisted, 0 means unknown
+        public long fingerprint;
 
         public EntityData(UUID entityUuid, UUID ownerUuid, RegistryKey<World> dimension, double x, double y, double z, boolean isPet) {
             this.entityUuid = entityUuid;
@@ -38,145 +66,730 @@ public class PackManager extends PersistentState {
             this.timestamp = System.currentTimeMillis();
             this.isPet = isPet;
         }
+
+        public NbtCompound getEntityNbt() throws IOException {
+            return snapshot != null ? snapshot.inflate() : null;
+        }
     }
 
+    // Per-owner view of the registry so owner queries don't walk every registration
+    private static class OwnerEntries {
+        final Set<UUID> pets = new LinkedHashSet<>();
+        final Set<UUID> mounts = new LinkedHashSet<>();
+        // Normalized custom name -> entities, sorted so prefix lookups are a range scan
+        final NavigableMap<String, Set<UUID>> petNames = new TreeMap<>();
+        final NavigableMap<String, Set<UUID>> mountNames = new TreeMap<>();
+        // Immutable display names handed to tab completion; rebuilt after the entries change
+        List<String> petNameSnapshot = null;
+        List<String> mountNameSnapshot = null;
+
+        boolean isEmpty() {
+            return pets.isEmpty() && mounts.isEmpty();
+        }
+    }
+
+    // Set free or dismissed while their chunk wasn't loaded; applied the next time the entity loads
+    public enum PendingAction { RELEASE, DISCARD }
+
     private final Map<UUID, EntityData> entityDataMap = new HashMap<>();
+    private final Map<UUID, PendingAction> pendingActions = new HashMap<>();
+    private final Map<UUID, OwnerEntries> ownerIndex = new HashMap<>();
+    private boolean legacyMigrated = false;
+    private long snapshotsWritten = 0;
+    private long snapshotsSkipped = 0;
 
-    public static PackManager get(ServerWorld world) {
-        return world.getPersistentStateManager().getOrCreate(
+    // Async persistence: records are sharded per owner under data/beastmaster/ and the vanilla file only
+    // holds metadata. Only shards of online or recently targeted owners are kept in memory.
+    private enum ShardStatus { LOADING, LOADED, FAILED }
+
+    private static class Shard {
+        ShardStatus status;
+        long evictAt;
+        // Untracked while the file was still being read, so the loaded copy mustn't bring them back
+        final Set<UUID> removedWhileLoading = new HashSet<>();
+        // Registered from a region scan while the file was being read; the file's record wins for these
+        final Set<UUID> scannedWhileLoading = new HashSet<>();
+
+        Shard(ShardStatus status, long evictAt) {
+            this.status = status;
+            this.evictAt = evictAt;
+        }
+    }
+
+    private RegistryStorage storage = null;
+    private MinecraftServer server = null;
+    private boolean storageChecked = false;
+    private boolean storedAsync = false;
+    // asyncPersistence as of openStorage; a config reload mustn't switch storage under a running registry
+    private boolean sharded = false;
+    private final Map<UUID, Shard> shards = new HashMap<>();
+    private final Set<UUID> changedOwners = new HashSet<>();
+    private boolean clearPending = false;
+    private boolean dropLegacyFile = false;
+    private int loadGeneration = 0;
+
+    public static PackManager get(MinecraftServer server) {
+        PackManager manager = server.getOverworld().getPersistentStateManager().getOrCreate(
             PackManager::fromNbt,
             PackManager::new,
-            "beastmaster_data" // Use consistent name, don't append world path
+            REGISTRY_ID
         );
+        if (!manager.storageChecked) {
+            manager.openStorage(server);
+        }
+        if (!manager.legacyMigrated) {
+            manager.migrateLegacyData(server);
+        }
+        return manager;
     }
 
-    public static PackManager fromNbt(NbtCompound nbt) {
-        PackManager manager = new PackManager();
-        try {
-            NbtList entitiesList = nbt.getList(ENTITIES_KEY, 10);
+    // Kept for callers that only have a world at hand; every dimension shares the same registry
+    public static PackManager get(ServerWorld world) {
+        return get(world.getServer());
+    }
 
-            for (int i = 0; i < entitiesList.size(); i++) {
-                NbtCompound entry = entitiesList.getCompound(i);
+    private void openStorage(MinecraftServer server) {
+        storageChecked = true;
+        this.server = server;
+        sharded = BeastMasterMod.CONFIG.asyncPersistence;
+        if (!storedAsync && !sharded) return;
 
-                // Check if required fields exist
-                if (!entry.containsUuid("entityUUID") || !entry.containsUuid("ownerUUID")) {
-                    LOGGER.warn("Skipping invalid entity entry: missing UUIDs");
-                    continue;
-                }
+        storage = new RegistryStorage(server.getSavePath(WorldSavePath.ROOT).resolve("data").resolve("beastmaster"));
 
-                UUID entityUuid = entry.getUuid("entityUUID");
-                UUID ownerUuid = entry.getUuid("ownerUUID");
-                String dimensionStr = entry.getString("dimension");
-                double x = entry.getDouble("x");
-                double y = entry.getDouble("y");
-                double z = entry.getDouble("z");
-                boolean isPet = entry.getBoolean("isPet");
+        // Async saving from before sharding kept everything in one file
+        int legacyLoaded = putEntries(storage.loadLegacyFile());
+        if (legacyLoaded > 0) {
+            dropLegacyFile = true;
+            LOGGER.info("Loaded {} entity registrations from single-file async storage for resharding", legacyLoaded);
+        }
 
-                RegistryKey<World> dimension = RegistryKey.of(net.minecraft.util.registry.Registry.WORLD_KEY,
-                    new net.minecraft.util.Identifier(dimensionStr));
+        if (sharded) {
+            if (!storedAsync) {
+                // Coming from vanilla saving: any shard files on disk are stale, rewrite them from memory
+                clearPending = true;
+            }
 
-                EntityData entityData = new EntityData(entityUuid, ownerUuid, dimension, x, y, z, isPet);
+            // Whatever is already in memory needs to be written as shards, then ages out like any other
+            long evictAt = System.currentTimeMillis() + getEvictionGraceMillis();
+            for (UUID ownerUuid : ownerIndex.keySet()) {
+                shards.put(ownerUuid, new Shard(ShardStatus.LOADED, evictAt));
+                changedOwners.add(ownerUuid);
+            }
+            if (clearPending || dropLegacyFile || !changedOwners.isEmpty()) {
+                markDirty();
+            }
+        } else {
+            // Switched back to vanilla saving: read every shard and write them into the regular file
+            int loaded = putEntries(storage.loadAllShards());
+            LOGGER.info("Loaded {} entity registrations from sharded storage", loaded);
+            markDirty();
+        }
+    }
+
+    private int putEntries(List<NbtCompound> entries) {
+        int loaded = 0;
+        for (NbtCompound entry : entries) {
+            EntityData entityData = fromEntryNbt(entry);
+            if (entityData != null) {
+                putEntityData(entityData);
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    private boolean isSharded() {
+        return storage != null && sharded;
+    }
+
+    private static long getEvictionGraceMillis() {
+        return Math.max(0, BeastMasterMod.CONFIG.shardEvictionMinutes) * 60_000L;
+    }
+
+    private long evictionDeadline(UUID ownerUuid) {
+        boolean online = server.getPlayerManager().getPlayer(ownerUuid) != null;
+        return online ? Long.MAX_VALUE : System.currentTimeMillis() + getEvictionGraceMillis();
+    }
+
+    // Make an owner's shard resident, reading it off-thread if it isn't already
+    private void requestShard(UUID ownerUuid) {
+        if (!isSharded() || shards.containsKey(ownerUuid)) return;
+
+        if (clearPending) {
+            // Every file is about to be deleted, so there is nothing worth reading
+            shards.put(ownerUuid, new Shard(ShardStatus.LOADED, evictionDeadline(ownerUuid)));
+            return;
+        }
+
+        Shard shard = new Shard(ShardStatus.LOADING, evictionDeadline(ownerUuid));
+        shards.put(ownerUuid, shard);
+        int generation = loadGeneration;
+        storage.loadShard(ownerUuid).whenComplete((entries, error) ->
+            server.execute(() -> onShardLoaded(ownerUuid, shard, generation, entries, error)));
+    }
+
+    private void onShardLoaded(UUID ownerUuid, Shard shard, int generation, List<NbtCompound> entries, Throwable error) {
+        // Cleared or evicted while the read was in flight
+        if (generation != loadGeneration || shards.get(ownerUuid) != shard) return;
+
+        if (error != null) {
+            // Never write a shard we couldn't read, or its contents would be lost
+            LOGGER.error("Failed to load companion shard for {}", ownerUuid, error);
+            shard.status = ShardStatus.FAILED;
+            return;
+        }
+
+        int loaded = 0;
+        for (NbtCompound entry : entries) {
+            EntityData entityData = fromEntryNbt(entry);
+            if (entityData == null || shard.removedWhileLoading.contains(entityData.entityUuid)) continue;
+
+            // Anything registered live while the shard was loading is newer than the file
+            if (!entityDataMap.containsKey(entityData.entityUuid) || shard.scannedWhileLoading.contains(entityData.entityUuid)) {
+                putEntityData(entityData);
+                loaded++;
+            }
+        }
+        shard.status = ShardStatus.LOADED;
+        shard.removedWhileLoading.clear();
+        shard.scannedWhileLoading.clear();
 
-                if (entry.contains("entityNbt", 10)) { // 10 = COMPOUND type
-                    entityData.entityNbt = entry.getCompound("entityNbt");
+        if (changedOwners.contains(ownerUuid)) {
+            markDirty();
+        }
+        LOGGER.debug("Loaded {} entity registrations for {}", loaded, ownerUuid);
+    }
+
+    public void onOwnerOnline(UUID ownerUuid) {
+        if (!isSharded()) return;
+
+        Shard shard = shards.get(ownerUuid);
+        if (shard == null) {
+            requestShard(ownerUuid);
+        } else {
+            shard.evictAt = Long.MAX_VALUE;
+        }
+    }
+
+    public void onOwnerOffline(UUID ownerUuid) {
+        Shard shard = shards.get(ownerUuid);
+        if (shard != null) {
+            shard.evictAt = System.currentTimeMillis() + getEvictionGraceMillis();
+        }
+    }
+
+    public boolean isOwnerLoading(UUID ownerUuid) {
+        Shard shard = shards.get(ownerUuid);
+        return shard != null && shard.status == ShardStatus.LOADING;
+    }
+
+    public int getResidentShardCount() {
+        return shards.size();
+    }
+
+    // Drop shards whose owners have been offline past the grace period, writing pending changes first
+    public void evictIdleShards() {
+        // A pending clear would delete files written here before the next save
+        if (!isSharded() || shards.isEmpty() || clearPending) return;
+
+        long now = System.currentTimeMillis();
+        Map<UUID, List<NbtCompound>> flushed = new HashMap<>();
+        int evicted = 0;
+
+        Iterator<Map.Entry<UUID, Shard>> iterator = shards.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Shard> entry = iterator.next();
+            UUID ownerUuid = entry.getKey();
+            Shard shard = entry.getValue();
+            if (shard.status == ShardStatus.LOADING || shard.evictAt > now) continue;
+            // An unreadable shard can't be written, so its unsaved changes only exist in memory
+            if (shard.status == ShardStatus.FAILED && changedOwners.contains(ownerUuid)) continue;
+
+            if (server.getPlayerManager().getPlayer(ownerUuid) != null) {
+                shard.evictAt = Long.MAX_VALUE;
+                continue;
+            }
+
+            if (changedOwners.remove(ownerUuid) && shard.status == ShardStatus.LOADED) {
+                flushed.put(ownerUuid, snapshotShard(ownerUuid));
+            }
+
+            OwnerEntries entries = ownerIndex.remove(ownerUuid);
+            if (entries != null) {
+                entries.pets.forEach(entityDataMap::remove);
+                entries.mounts.forEach(entityDataMap::remove);
+            }
+            iterator.remove();
+            evicted++;
+        }
+
+        if (!flushed.isEmpty()) {
+            storage.submit(new RegistryStorage.Delta(flushed, false, false));
+        }
+        if (evicted > 0) {
+            LOGGER.debug("Evicted {} idle companion shards", evicted);
+        }
+    }
+
+    private List<NbtCompound> snapshotShard(UUID ownerUuid) {
+        List<NbtCompound> entries = new ArrayList<>();
+        for (EntityData entityData : getEntitiesByOwner(ownerUuid)) {
+            entries.add(toEntryNbt(entityData));
+        }
+        return entries;
+    }
+
+    private void migrateLegacyData(MinecraftServer server) {
+        legacyMigrated = true;
+        markDirty();
+
+        int migrated = 0;
+        int duplicates = 0;
+        for (ServerWorld world : server.getWorlds()) {
+            try {
+                PackManager legacy = world.getPersistentStateManager().get(PackManager::fromNbt, LEGACY_ID);
+                if (legacy == null || legacy.entityDataMap.isEmpty()) continue;
+
+                for (EntityData data : legacy.entityDataMap.values()) {
+                    // Old builds re-registered summoned entities in the target dimension without
+                    // untracking them elsewhere, so the same UUID can appear in several files
+                    if (entityDataMap.containsKey(data.entityUuid)) {
+                        duplicates++;
+                        continue;
+                    }
+                    putEntityData(data);
+                    changedOwners.add(data.ownerUuid);
+                    if (isSharded() && !shards.containsKey(data.ownerUuid)) {
+                        // Nothing was ever sharded for an owner that only existed in the old files
+                        shards.put(data.ownerUuid, new Shard(ShardStatus.LOADED, evictionDeadline(data.ownerUuid)));
+                    }
+                    migrated++;
                 }
 
-                if (entry.contains("customName", 8)) { // 8 = STRING type
-                    entityData.customName = entry.getString("customName");
+                // Empty the old file so a lost migration flag can't import stale entries again
+                legacy.clearAllData();
+            } catch (Exception e) {
+                LOGGER.error("Error migrating legacy entity data from {}", world.getRegistryKey().getValue(), e);
+            }
+        }
+
+        if (migrated > 0 || duplicates > 0) {
+            LOGGER.info("Migrated {} entity registrations from per-dimension storage ({} duplicates skipped)",
+                migrated, duplicates);
+        }
+    }
+
+    public static PackManager fromNbt(NbtCompound nbt) {
+        PerfMonitor.begin(PerfMonitor.Section.REGISTRY_LOAD);
+        RegistryLoadEvent event = new RegistryLoadEvent();
+        event.begin();
+        PackManager manager = new PackManager();
+        try {
+            manager.legacyMigrated = nbt.getBoolean(LEGACY_MIGRATED_KEY);
+            // Records are read from the async storage once get() knows where the world lives
+            manager.storedAsync = STORAGE_ASYNC.equals(nbt.getString(STORAGE_KEY));
+
+            NbtList pendingList = nbt.getList(PENDING_ACTIONS_KEY, 10);
+            for (int i = 0; i < pendingList.size(); i++) {
+                NbtCompound pending = pendingList.getCompound(i);
+                if (!pending.containsUuid("entityUUID")) continue;
+                try {
+                    manager.pendingActions.put(pending.getUuid("entityUUID"),
+                        PendingAction.valueOf(pending.getString("action")));
+                } catch (IllegalArgumentException e) {
+                    LOGGER.warn("Skipping unknown pending action: {}", pending.getString("action"));
                 }
+            }
+            NbtList entitiesList = nbt.getList(ENTITIES_KEY, 10);
 
-                manager.entityDataMap.put(entityUuid, entityData);
+            for (int i = 0; i < entitiesList.size(); i++) {
+                EntityData entityData = fromEntryNbt(entitiesList.getCompound(i));
+                if (entityData != null) {
+                    manager.putEntityData(entityData);
+                }
             }
             LOGGER.info("Loaded {} entity registrations from storage", manager.entityDataMap.size());
         } catch (Exception e) {
             LOGGER.error("Error loading PackManager from NBT", e);
+        } finally {
+            PerfMonitor.end(PerfMonitor.Section.REGISTRY_LOAD);
+            event.end();
+            if (event.shouldCommit()) {
+                event.storage = "vanilla";
+                event.records = manager.entityDataMap.size();
+                event.bytes = manager.getSnapshotSizes()[0];
+                event.commit();
+            }
         }
         return manager;
     }
 
+    private static EntityData fromEntryNbt(NbtCompound entry) {
+        // Check if required fields exist
+        if (!entry.containsUuid("entityUUID") || !entry.containsUuid("ownerUUID")) {
+            LOGGER.warn("Skipping invalid entity entry: missing UUIDs");
+            return null;
+        }
+
+        UUID entityUuid = entry.getUuid("entityUUID");
+        UUID ownerUuid = entry.getUuid("ownerUUID");
+        String dimensionStr = entry.getString("dimension");
+        double x = entry.getDouble("x");
+        double y = entry.getDouble("y");
+        double z = entry.getDouble("z");
+        boolean isPet = entry.getBoolean("isPet");
+
+        RegistryKey<World> dimension = RegistryKey.of(net.minecraft.util.registry.Registry.WORLD_KEY,
+            new net.minecraft.util.Identifier(dimensionStr));
+
+        EntityData entityData = new EntityData(entityUuid, ownerUuid, dimension, x, y, z, isPet);
+
+        try {
+            if (entry.contains("entityNbtDeflated", 7)) { // 7 = BYTE_ARRAY type
+                entityData.snapshot = NbtSnapshot.fromBytes(entry.getByteArray("entityNbtDeflated"),
+                    entry.getInt("entityNbtSize"));
+            } else if (entry.contains("entityNbt", 10)) { // 10 = COMPOUND type, older saves
+                entityData.snapshot = NbtSnapshot.of(entry.getCompound("entityNbt"));
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Dropping unreadable NBT snapshot for entity {}", entityUuid, e);
+        }
+
+        if (entry.contains("customName", 8)) { // 8 = STRING type
+            entityData.customName = entry.getString("customName");
+        }
+        return entityData;
+    }
+
+    private static NbtCompound toEntryNbt(EntityData entityData) {
+        NbtCompound entry = new NbtCompound();
+        entry.putUuid("entityUUID", entityData.entityUuid);
+        entry.putUuid("ownerUUID", entityData.ownerUuid);
+        entry.putString("dimension", entityData.dimension.getValue().toString());
+        entry.putDouble("x", entityData.x);
+        entry.putDouble("y", entityData.y);
+        entry.putDouble("z", entityData.z);
+        entry.putBoolean("isPet", entityData.isPet);
+
+        // Snapshots are immutable, so the bytes can be shared with the storage thread as is
+        if (entityData.snapshot != null) {
+            entry.putByteArray("entityNbtDeflated", entityData.snapshot.getBytes());
+            entry.putInt("entityNbtSize", entityData.snapshot.getRawSize());
+        }
+
+        if (entityData.customName != null) {
+            entry.putString("customName", entityData.customName);
+        }
+        return entry;
+    }
+
     @Override
     public NbtCompound writeNbt(NbtCompound nbt) {
+        PerfMonitor.begin(PerfMonitor.Section.REGISTRY_SAVE);
+        RegistrySaveEvent event = new RegistrySaveEvent();
+        event.begin();
         try {
-            NbtList entitiesList = new NbtList();
+            nbt.putBoolean(LEGACY_MIGRATED_KEY, legacyMigrated);
 
-            for (EntityData entityData : entityDataMap.values()) {
-                NbtCompound entry = new NbtCompound();
-                entry.putUuid("entityUUID", entityData.entityUuid);
-                entry.putUuid("ownerUUID", entityData.ownerUuid);
-                entry.putString("dimension", entityData.dimension.getValue().toString());
-                entry.putDouble("x", entityData.x);
-                entry.putDouble("y", entityData.y);
-                entry.putDouble("z", entityData.z);
-                entry.putBoolean("isPet", entityData.isPet);
-
-                if (entityData.entityNbt != null) {
-                    entry.put("entityNbt", entityData.entityNbt);
-                }
+            // Small and rare, so they stay in the vanilla file in both storage modes
+            NbtList pendingList = new NbtList();
+            for (Map.Entry<UUID, PendingAction> entry : pendingActions.entrySet()) {
+                NbtCompound pending = new NbtCompound();
+                pending.putUuid("entityUUID", entry.getKey());
+                pending.putString("action", entry.getValue().name());
+                pendingList.add(pending);
+            }
+            nbt.put(PENDING_ACTIONS_KEY, pendingList);
 
-                if (entityData.customName != null) {
-                    entry.putString("customName", entityData.customName);
+            if (isSharded()) {
+                RegistryStorage.Delta delta = takeDelta();
+                storage.submit(delta);
+                if (event.shouldCommit()) {
+                    event.storage = "async-delta";
+                    event.shards = delta.shards().size();
+                    for (List<NbtCompound> entries : delta.shards().values()) {
+                        event.records += entries.size();
+                        for (NbtCompound entry : entries) {
+                            event.bytes += entry.getByteArray("entityNbtDeflated").length;
+                        }
+                    }
                 }
+                nbt.putString(STORAGE_KEY, STORAGE_ASYNC);
+                storedAsync = true;
+                return nbt;
+            }
 
-                entitiesList.add(entry);
+            NbtList entitiesList = new NbtList();
+            for (EntityData entityData : entityDataMap.values()) {
+                entitiesList.add(toEntryNbt(entityData));
             }
 
             nbt.put(ENTITIES_KEY, entitiesList);
+            if (event.shouldCommit()) {
+                event.storage = "vanilla";
+                event.records = entitiesList.size();
+                event.bytes = getSnapshotSizes()[0];
+            }
+            storedAsync = false;
+            changedOwners.clear();
+            clearPending = false;
             LOGGER.debug("Saved {} entities to NBT", entitiesList.size());
         } catch (Exception e) {
             LOGGER.error("Error saving PackManager to NBT", e);
+        } finally {
+            PerfMonitor.end(PerfMonitor.Section.REGISTRY_SAVE);
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
         }
         return nbt;
     }
 
-    public void storeEntityNbt(Entity entity) {
-        try {
-            UUID entityUuid = entity.getUuid();
-            UUID ownerUuid = BeastMasterMod.getOwnerUuid(entity);
+    // Main-thread part of an async save: snapshots of the shards touched since the last one
+    private RegistryStorage.Delta takeDelta() {
+        Map<UUID, List<NbtCompound>> shardWrites = new HashMap<>();
+        Iterator<UUID> iterator = changedOwners.iterator();
+        while (iterator.hasNext()) {
+            UUID ownerUuid = iterator.next();
+            Shard shard = shards.get(ownerUuid);
+            // A shard still loading (or unreadable) can't be written without losing what's on disk
+            if (shard == null || shard.status != ShardStatus.LOADED) continue;
+
+            shardWrites.put(ownerUuid, snapshotShard(ownerUuid));
+            iterator.remove();
+        }
 
-            if (ownerUuid != null && entity.isAlive()) {
-                RegistryKey<World> dimension = entity.getWorld().getRegistryKey();
-                Vec3d pos = entity.getPos();
+        RegistryStorage.Delta delta = new RegistryStorage.Delta(shardWrites, clearPending, dropLegacyFile);
+        clearPending = false;
+        dropLegacyFile = false;
+        return delta;
+    }
 
-                boolean isPet = BeastConfig.isSupportedPet(entity);
+    // What a snapshot is made of, read off a live entity by observe() or rebuilt from a trace by
+    // WorkloadReplayer. The NBT is only produced when the fingerprint says the entity changed.
+    public record Observation(UUID entityUuid, UUID ownerUuid, RegistryKey<World> dimension, double x, double y, double z,
+                              boolean isPet, long fingerprint, String customName, EntityType<?> type,
+                              Supplier<NbtCompound> nbt) {}
 
-                // Save entity to NBT
+    public static Observation observe(Entity entity) {
+        Vec3d pos = entity.getPos();
+        String customName = entity.hasCustomName() ? entity.getCustomName().getString() : null;
+        return new Observation(entity.getUuid(), BeastMasterMod.getOwnerUuid(entity), entity.getWorld().getRegistryKey(),
+            pos.x, pos.y, pos.z, BeastConfig.isSupportedPet(entity), computeFingerprint(entity), customName, entity.getType(),
+            () -> {
                 NbtCompound entityNbt = new NbtCompound();
                 entity.saveNbt(entityNbt);
+                return entityNbt;
+            });
+    }
 
-                // Ensure the UUID is preserved in NBT
-                if (!entityNbt.containsUuid("UUID")) {
-                    entityNbt.putUuid("UUID", entityUuid);
-                }
+    public void storeEntityNbt(Entity entity) {
+        PerfMonitor.begin(PerfMonitor.Section.STORE_NBT);
+        try {
+            if (BeastMasterMod.getOwnerUuid(entity) != null && entity.isAlive()) {
+                store(observe(entity));
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error storing entity NBT for {}", entity.getUuid(), e);
+        } finally {
+            PerfMonitor.end(PerfMonitor.Section.STORE_NBT);
+        }
+    }
 
-                EntityData newData = new EntityData(entityUuid, ownerUuid, dimension, pos.x, pos.y, pos.z, isPet);
-                newData.entityNbt = entityNbt;
+    // Registry side of storeEntityNbt; returns false if the existing snapshot was still good
+    public boolean store(Observation observation) throws IOException {
+        UUID entityUuid = observation.entityUuid();
+        UUID ownerUuid = observation.ownerUuid();
+        RegistryKey<World> dimension = observation.dimension();
+        boolean isPet = observation.isPet();
+        requestShard(ownerUuid);
 
-                if (entity.hasCustomName()) {
-                    newData.customName = entity.getCustomName().getString();
-                } else {
-                    newData.customName = null;
-                }
+        // Skip the full saveNbt when nothing we care about changed since the last snapshot
+        EntityData existing = entityDataMap.get(entityUuid);
+        if (existing != null && existing.snapshot != null &&
+            existing.fingerprint == observation.fingerprint() &&
+            existing.isPet == isPet &&
+            existing.ownerUuid.equals(ownerUuid) &&
+            existing.dimension.equals(dimension) &&
+            System.currentTimeMillis() - existing.timestamp < SNAPSHOT_MAX_AGE_MS) {
+            snapshotsSkipped++;
+            return false;
+        }
+
+        // Save entity to NBT
+        NbtCompound entityNbt = observation.nbt().get();
+
+        // Ensure the UUID is preserved in NBT
+        if (!entityNbt.containsUuid("UUID")) {
+            entityNbt.putUuid("UUID", entityUuid);
+        }
+
+        EntityData newData = new EntityData(entityUuid, ownerUuid, dimension, observation.x(), observation.y(), observation.z(), isPet);
+        newData.snapshot = NbtSnapshot.of(entityNbt);
+        newData.fingerprint = observation.fingerprint();
+        newData.customName = observation.customName();
+        commitSnapshotEvent("live", observation.type(), entityNbt, newData.snapshot);
+
+        Shard shard = shards.get(ownerUuid);
+        if (shard != null) {
+            // The live entity is newer than both a scanned record and the file
+            shard.scannedWhileLoading.remove(entityUuid);
+        }
+        EntityData oldData = putEntityData(newData);
+        changedOwners.add(ownerUuid);
+        if (oldData != null && !oldData.ownerUuid.equals(ownerUuid)) {
+            changedOwners.add(oldData.ownerUuid);
+        }
+        markDirty(); // This is crucial!
+        snapshotsWritten++;
+
+        if (oldData != null) {
+            LOGGER.debug("Updated entity NBT: {} in {}", entityUuid, dimension.getValue());
+        } else {
+            LOGGER.debug("Registered {} with NBT: {} in {} for owner {}",
+                isPet ? "pet" : "mount", entityUuid, dimension.getValue(), ownerUuid);
+        }
+        return true;
+    }
+
+    // ENTITY_LOAD for an owned companion, shared with WorkloadReplayer. Returns the setfree or dismiss
+    // left for it while it was unloaded, for the caller to finish; otherwise registers it if it's new.
+    // Asks the registry every time: records can be untracked, cleared or evicted while the entity is loaded.
+    public PendingAction onCompanionLoaded(UUID entityUuid, Runnable register) {
+        PendingAction pending = takePendingAction(entityUuid);
+        if (pending != null) {
+            return pending;
+        }
+        if (!isEntityTracked(entityUuid)) {
+            register.run();
+        }
+        return null;
+    }
+
+    // Record-level registration for an entity that isn't loaded, e.g. one found by the region scanner.
+    // Entities that are already registered keep their record, which is at least as fresh as the region
+    // file. Returns true if the entity was added.
+    public boolean registerSnapshot(UUID entityUuid, UUID ownerUuid, RegistryKey<World> dimension,
+                                    double x, double y, double z, boolean isPet, NbtCompound entityNbt, String customName) {
+        // Set free or dismissed by its owner, don't bring it back
+        if (pendingActions.containsKey(entityUuid) || entityDataMap.containsKey(entityUuid)) return false;
+
+        try {
+            requestShard(ownerUuid);
+            EntityData newData = new EntityData(entityUuid, ownerUuid, dimension, x, y, z, isPet);
+            newData.snapshot = NbtSnapshot.of(entityNbt);
+            newData.customName = customName;
+            commitSnapshotEvent("scan", null, entityNbt, newData.snapshot);
+
+            Shard shard = shards.get(ownerUuid);
+            if (shard != null && shard.status == ShardStatus.LOADING) {
+                shard.scannedWhileLoading.add(entityUuid);
+            }
+            putEntityData(newData);
+            changedOwners.add(ownerUuid);
+            markDirty();
+            snapshotsWritten++;
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Error registering snapshot for {}", entityUuid, e);
+            return false;
+        }
+    }
+
+    private static void commitSnapshotEvent(String source, EntityType<?> type, NbtCompound entityNbt, NbtSnapshot snapshot) {
+        SnapshotEvent event = new SnapshotEvent();
+        if (!event.isEnabled()) return;
+
+        event.entityType = type != null ? EntityType.getId(type).toString() : entityNbt.getString("id");
+        event.source = source;
+        event.compressedBytes = snapshot.getCompressedSize();
+        event.rawBytes = snapshot.getRawSize();
+        event.commit();
+    }
+
+    // Position bucket, health, equipment/inventory and name; anything else is caught by SNAPSHOT_MAX_AGE_MS
+    private static long computeFingerprint(Entity entity) {
+        long hash = baseFingerprint(entity.getBlockX(), entity.getBlockY(), entity.getBlockZ(),
+            entity.hasCustomName() ? entity.getCustomName().getString() : null);
+
+        if (entity instanceof LivingEntity living) {
+            hash = 31 * hash + Float.floatToIntBits(living.getHealth());
+            hash = 31 * hash + Float.floatToIntBits(living.getMaxHealth());
+            hash = 31 * hash + (living.isBaby() ? 1 : 0);
+            for (ItemStack stack : living.getItemsEquipped()) {
+                hash = 31 * hash + hashStack(stack);
+            }
+        }
 
-                EntityData oldData = entityDataMap.put(entityUuid, newData);
-                markDirty(); // This is crucial!
+        if (entity instanceof TameableEntity tameable) {
+            hash = 31 * hash + (tameable.isSitting() ? 1 : 0);
+        }
 
-                if (oldData != null) {
-                    LOGGER.debug("Updated entity NBT: {} in {}", entityUuid, dimension.getValue());
-                } else {
-                    LOGGER.info("Registered {} with NBT: {} in {} for owner {}",
-                        isPet ? "pet" : "mount", entityUuid, dimension.getValue(), ownerUuid);
+        if (entity instanceof HorseBaseEntity) {
+            SimpleInventory items = ((HorseBaseEntityAccessor) entity).getItems();
+            if (items != null) {
+                for (int i = 0; i < items.size(); i++) {
+                    hash = 31 * hash + hashStack(items.getStack(i));
                 }
             }
-        } catch (Exception e) {
-            LOGGER.error("Error storing entity NBT for {}", entity.getUuid(), e);
         }
+
+        return hash;
+    }
+
+    // Position bucket and name, the part of the fingerprint a workload trace can reproduce
+    public static long baseFingerprint(int blockX, int blockY, int blockZ, String customName) {
+        long hash = 17;
+        hash = 31 * hash + (blockX >> 2);
+        hash = 31 * hash + (blockY >> 2);
+        hash = 31 * hash + (blockZ >> 2);
+        hash = 31 * hash + (customName != null ? customName.hashCode() : 0);
+        return hash;
+    }
+
+    private static int hashStack(ItemStack stack) {
+        if (stack.isEmpty()) return 0;
+
+        int hash = Item.getRawId(stack.getItem());
+        hash = 31 * hash + stack.getCount();
+        hash = 31 * hash + (stack.hasNbt() ? stack.getNbt().hashCode() : 0);
+        return hash;
+    }
+
+    // {compressed bytes, uncompressed NBT bytes} over every resident snapshot
+    public long[] getSnapshotSizes() {
+        long compressed = 0;
+        long raw = 0;
+        for (EntityData entityData : entityDataMap.values()) {
+            if (entityData.snapshot != null) {
+                compressed += entityData.snapshot.getCompressedSize();
+                raw += entityData.snapshot.getRawSize();
+            }
+        }
+        return new long[] {compressed, raw};
+    }
+
+    public long getSnapshotsWritten() {
+        return snapshotsWritten;
+    }
+
+    public long getSnapshotsSkipped() {
+        return snapshotsSkipped;
     }
 
     public void untrackEntity(UUID entityUuid) {
         try {
-            if (entityDataMap.remove(entityUuid) != null) {
+            EntityData removed = entityDataMap.remove(entityUuid);
+            if (removed != null) {
+                unindexEntity(removed);
+                changedOwners.add(removed.ownerUuid);
+                Shard shard = shards.get(removed.ownerUuid);
+                if (shard != null && shard.status == ShardStatus.LOADING) {
+                    shard.removedWhileLoading.add(entityUuid);
+                }
                 markDirty();
-                LOGGER.info("Untracked entity: {}", entityUuid);
+                LOGGER.debug("Untracked entity: {}", entityUuid);
             }
         } catch (Exception e) {
             LOGGER.error("Error untracking entity", e);
@@ -184,35 +797,207 @@ public class PackManager extends PersistentState {
     }
 
     public List<EntityData> getEntitiesByOwner(UUID ownerUuid) {
-        List<EntityData> result = new ArrayList<>();
-        for (EntityData data : entityDataMap.values()) {
-            if (data.ownerUuid.equals(ownerUuid)) {
-                result.add(data);
-            }
+        OwnerEntries entries = ownerIndex.get(ownerUuid);
+        if (entries == null) {
+            return new ArrayList<>();
         }
+        List<EntityData> result = new ArrayList<>(entries.pets.size() + entries.mounts.size());
+        collectEntities(entries.pets, result);
+        collectEntities(entries.mounts, result);
         return result;
     }
 
     public List<EntityData> getPetsByOwner(UUID ownerUuid) {
-        List<EntityData> result = new ArrayList<>();
-        for (EntityData data : entityDataMap.values()) {
-            if (data.ownerUuid.equals(ownerUuid) && data.isPet) {
-                result.add(data);
-            }
+        OwnerEntries entries = ownerIndex.get(ownerUuid);
+        if (entries == null) {
+            return new ArrayList<>();
         }
+        List<EntityData> result = new ArrayList<>(entries.pets.size());
+        collectEntities(entries.pets, result);
         return result;
     }
 
     public List<EntityData> getMountsByOwner(UUID ownerUuid) {
+        OwnerEntries entries = ownerIndex.get(ownerUuid);
+        if (entries == null) {
+            return new ArrayList<>();
+        }
+        List<EntityData> result = new ArrayList<>(entries.mounts.size());
+        collectEntities(entries.mounts, result);
+        return result;
+    }
+
+    // Name index key of unnamed entities. trim() strips every character up to U+0020, so no real name
+    // normalizes to this.
+    private static final String UNNAMED_KEY = "\0";
+
+    // Case-folded, trimmed form used by the name index; only unnamed entities get UNNAMED_KEY
+    public static String normalizeName(String name) {
+        if (name == null) return UNNAMED_KEY;
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Owned pets or mounts matching a name query: an exact name, a prefix ("Rex*") or a glob ("R?x*")
+    public List<EntityData> findByName(UUID ownerUuid, boolean pets, String query) {
         List<EntityData> result = new ArrayList<>();
-        for (EntityData data : entityDataMap.values()) {
-            if (data.ownerUuid.equals(ownerUuid) && !data.isPet) {
-                result.add(data);
+        OwnerEntries entries = ownerIndex.get(ownerUuid);
+        if (entries == null) {
+            return result;
+        }
+        NavigableMap<String, Set<UUID>> names = pets ? entries.petNames : entries.mountNames;
+
+        String normalized = normalizeName(query);
+        int wildcard = indexOfWildcard(normalized);
+        if (wildcard < 0) {
+            Set<UUID> matches = names.get(normalized);
+            if (matches != null) {
+                collectEntities(matches, result);
+            }
+            // Players call unnamed companions by the name the list shows for them
+            if (normalized.equals("noname") || normalized.equals("unknown")) {
+                Set<UUID> unnamed = names.get(UNNAMED_KEY);
+                if (unnamed != null) {
+                    collectEntities(unnamed, result);
+                }
+            }
+            return result;
+        }
+
+        // Only keys sharing the literal part before the first wildcard can match
+        String prefix = normalized.substring(0, wildcard);
+        boolean prefixOnly = wildcard == normalized.length() - 1 && normalized.charAt(wildcard) == '*';
+        java.util.regex.Pattern glob = prefixOnly ? null : compileGlob(normalized);
+        for (Map.Entry<String, Set<UUID>> entry : names.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) break;
+            // Unnamed companions match as an empty name, so "*" still calls them and "?" doesn't
+            String name = entry.getKey().equals(UNNAMED_KEY) ? "" : entry.getKey();
+            if (glob == null || glob.matcher(name).matches()) {
+                collectEntities(entry.getValue(), result);
             }
         }
         return result;
     }
 
+    // Distinct display names of an owner's pets or mounts, sorted; server thread, the returned list is immutable
+    public List<String> getNameSnapshot(UUID ownerUuid, boolean pets) {
+        OwnerEntries entries = ownerIndex.get(ownerUuid);
+        if (entries == null) {
+            return List.of();
+        }
+
+        List<String> snapshot = pets ? entries.petNameSnapshot : entries.mountNameSnapshot;
+        if (snapshot == null) {
+            NavigableMap<String, Set<UUID>> names = pets ? entries.petNames : entries.mountNames;
+            List<String> displayNames = new ArrayList<>(names.size());
+            for (Map.Entry<String, Set<UUID>> entry : names.entrySet()) {
+                if (entry.getKey().equals(UNNAMED_KEY)) {
+                    displayNames.add("Noname");
+                    continue;
+                }
+                // Names only differing in case share a key, show the first one registered
+                EntityData data = entityDataMap.get(entry.getValue().iterator().next());
+                displayNames.add(data != null && data.customName != null ? data.customName.trim() : entry.getKey());
+            }
+            snapshot = List.copyOf(displayNames);
+            if (pets) {
+                entries.petNameSnapshot = snapshot;
+            } else {
+                entries.mountNameSnapshot = snapshot;
+            }
+        }
+        return snapshot;
+    }
+
+    private static int indexOfWildcard(String query) {
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '*' || c == '?') return i;
+        }
+        return -1;
+    }
+
+    private static java.util.regex.Pattern compileGlob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int literalStart = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > literalStart) {
+                    regex.append(java.util.regex.Pattern.quote(glob.substring(literalStart, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                literalStart = i + 1;
+            }
+        }
+        if (literalStart < glob.length()) {
+            regex.append(java.util.regex.Pattern.quote(glob.substring(literalStart)));
+        }
+        return java.util.regex.Pattern.compile(regex.toString(), java.util.regex.Pattern.DOTALL);
+    }
+
+    private void collectEntities(Set<UUID> entityUuids, List<EntityData> result) {
+        for (UUID entityUuid : entityUuids) {
+            EntityData data = entityDataMap.get(entityUuid);
+            if (data != null) {
+                result.add(data);
+            }
+        }
+    }
+
+    // Keeps entityDataMap and ownerIndex in step; returns the replaced entry, if any
+    private EntityData putEntityData(EntityData data) {
+        EntityData oldData = entityDataMap.put(data.entityUuid, data);
+        if (oldData != null) {
+            unindexEntity(oldData);
+        }
+        OwnerEntries entries = ownerIndex.computeIfAbsent(data.ownerUuid, owner -> new OwnerEntries());
+        (data.isPet ? entries.pets : entries.mounts).add(data.entityUuid);
+        (data.isPet ? entries.petNames : entries.mountNames)
+            .computeIfAbsent(normalizeName(data.customName), name -> new LinkedHashSet<>())
+            .add(data.entityUuid);
+        entries.petNameSnapshot = null;
+        entries.mountNameSnapshot = null;
+        return oldData;
+    }
+
+    private void unindexEntity(EntityData data) {
+        OwnerEntries entries = ownerIndex.get(data.ownerUuid);
+        if (entries == null) return;
+
+        (data.isPet ? entries.pets : entries.mounts).remove(data.entityUuid);
+        NavigableMap<String, Set<UUID>> names = data.isPet ? entries.petNames : entries.mountNames;
+        String name = normalizeName(data.customName);
+        Set<UUID> named = names.get(name);
+        if (named != null && named.remove(data.entityUuid) && named.isEmpty()) {
+            names.remove(name);
+        }
+        entries.petNameSnapshot = null;
+        entries.mountNameSnapshot = null;
+        if (entries.isEmpty()) {
+            ownerIndex.remove(data.ownerUuid);
+        }
+    }
+
+    public void addPendingAction(UUID entityUuid, PendingAction action) {
+        pendingActions.put(entityUuid, action);
+        markDirty();
+    }
+
+    // Removes and returns the action waiting for this entity, if any
+    public PendingAction takePendingAction(UUID entityUuid) {
+        if (pendingActions.isEmpty()) return null;
+
+        PendingAction action = pendingActions.remove(entityUuid);
+        if (action != null) {
+            markDirty();
+        }
+        return action;
+    }
+
+    public int getPendingActionCount() {
+        return pendingActions.size();
+    }
+
     public boolean isEntityTracked(UUID entityUuid) {
         return entityDataMap.containsKey(entityUuid);
     }
@@ -228,6 +1013,16 @@ public class PackManager extends PersistentState {
     // Add a method to clear all data (for debugging)
     public void clearAllData() {
         entityDataMap.clear();
+        ownerIndex.clear();
+        changedOwners.clear();
+        // Resident owners are now known to be empty; reads still in flight are stale
+        loadGeneration++;
+        for (Shard shard : shards.values()) {
+            shard.status = ShardStatus.LOADED;
+            shard.removedWhileLoading.clear();
+            shard.scannedWhileLoading.clear();
+        }
+        clearPending = true;
         markDirty();
         LOGGER.info("Cleared all entity data");
     }
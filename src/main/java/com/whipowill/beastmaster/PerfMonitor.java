@@ -0,0 +1,152 @@
+package com.whipowill.beastmaster;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Rolling latency/allocation histograms for the mod's main work units, shown by /beast perf.
+// Every call site is a begin()/end() pair on the server thread; when monitoring is off both return
+// after reading one static boolean.
+public class PerfMonitor {
+    // Samples kept per section for the percentiles
+    private static final int WINDOW = 1024;
+
+    public enum Section {
+        REGEN_SWEEP("regen sweep"),
+        PROXIMITY_SAVE("mount proximity save"),
+        STORE_NBT("storeEntityNbt"),
+        REGISTRY_SAVE("registry save"),
+        REGISTRY_LOAD("registry load"),
+        WHISTLE_RESOLVE("whistle resolve"),
+        WHISTLE_SPAWN("whistle spawn/move"),
+        DAMAGE("damage hook");
+
+        public final String label;
+        private final Histogram histogram = new Histogram(WINDOW);
+
+        Section(String label) {
+            this.label = label;
+        }
+    }
+
+    // Rolling window of latency and allocation samples. The sections above each own one; the workload
+    // replayer keeps its own per event type. Not thread-safe, use from one thread.
+    public static class Histogram {
+        private final long[] nanos;
+        private final long[] allocated;
+        private int next = 0;
+        private long count = 0;
+        private long max = 0;
+        private long startNanos = 0;
+        private long startAllocated = 0;
+
+        public Histogram(int window) {
+            this.nanos = new long[window];
+            this.allocated = new long[window];
+        }
+
+        public void begin() {
+            startAllocated = THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+            startNanos = System.nanoTime();
+        }
+
+        public void end() {
+            if (startNanos == 0) return;
+
+            long elapsed = System.nanoTime() - startNanos;
+            long allocatedBytes = THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() - startAllocated : 0;
+            startNanos = 0;
+
+            nanos[next] = elapsed;
+            allocated[next] = allocatedBytes;
+            next = (next + 1) % nanos.length;
+            count++;
+            max = Math.max(max, elapsed);
+        }
+
+        public Stats getStats(String label) {
+            int samples = (int) Math.min(count, nanos.length);
+            if (samples == 0) {
+                return new Stats(label, 0, 0, 0, 0, 0);
+            }
+
+            long[] sorted = Arrays.copyOf(nanos, samples);
+            Arrays.sort(sorted);
+            long allocatedTotal = 0;
+            for (int i = 0; i < samples; i++) {
+                allocatedTotal += allocated[i];
+            }
+            return new Stats(label, count, percentile(sorted, 0.50), percentile(sorted, 0.99), max, allocatedTotal / samples);
+        }
+
+        public void reset() {
+            Arrays.fill(nanos, 0);
+            Arrays.fill(allocated, 0);
+            next = 0;
+            count = 0;
+            max = 0;
+            startNanos = 0;
+        }
+    }
+
+    // A snapshot of one section for display
+    public record Stats(String label, long count, long p50Nanos, long p99Nanos, long maxNanos, long avgAllocatedBytes) {}
+
+    private static boolean enabled = false;
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean &&
+                bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            // Allocation columns stay empty
+        }
+        return null;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        PerfMonitor.enabled = enabled;
+    }
+
+    public static boolean isAllocationTracked() {
+        return THREADS != null;
+    }
+
+    public static void begin(Section section) {
+        if (!enabled) return;
+        section.histogram.begin();
+    }
+
+    public static void end(Section section) {
+        if (!enabled) return;
+        section.histogram.end();
+    }
+
+    public static List<Stats> getStats() {
+        List<Stats> stats = new ArrayList<>();
+        for (Section section : Section.values()) {
+            stats.add(section.histogram.getStats(section.label));
+        }
+        return stats;
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    public static void reset() {
+        for (Section section : Section.values()) {
+            section.histogram.reset();
+        }
+    }
+}
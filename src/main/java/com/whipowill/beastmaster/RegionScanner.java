@@ -0,0 +1,303 @@
+package com.whipowill.beastmaster;
+
+import net.minecraft.entity.EntityType;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.WorldSavePath;
+import net.minecraft.util.registry.Registry;
+import net.minecraft.util.registry.RegistryKey;
+import net.minecraft.world.World;
+import net.minecraft.world.dimension.DimensionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+// Finds a player's companions in chunks that aren't loaded by reading the entity region files
+// (<dimension>/entities/r.X.Z.mca) on a background thread. Chunks are only parsed as NBT when the
+// owner's UUID bytes appear in them, and disk reads are throttled to regionScanBytesPerSecond so
+// regular chunk loading keeps priority. Matches are registered on the server thread.
+public class RegionScanner {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BeastMaster");
+    private static final int SECTOR_SIZE = 4096;
+    private static final int HEADER_ENTRIES = 1024;
+    private static final int COMPRESSION_GZIP = 1;
+    private static final int COMPRESSION_ZLIB = 2;
+    private static final int COMPRESSION_NONE = 3;
+    // Set on the compression byte when the chunk lives in a separate .mcc file
+    private static final int EXTERNAL_FLAG = 128;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "BeastMaster-RegionScan");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private static final Set<UUID> activeScans = ConcurrentHashMap.newKeySet();
+
+    private record Dimension(RegistryKey<World> key, Path entitiesDirectory) {}
+
+    private final MinecraftServer server;
+    private final UUID ownerUuid;
+    private final boolean scanPets;
+    private final byte[] ownerBytes;
+    private final List<Dimension> dimensions = new ArrayList<>();
+    private final long bytesPerSecond;
+    private long bytesRead = 0;
+    private long startNanos;
+    private int regionsScanned = 0;
+    private int chunksParsed = 0;
+
+    private RegionScanner(ServerPlayerEntity player, boolean scanPets) {
+        this.server = player.getServer();
+        this.ownerUuid = player.getUuid();
+        this.scanPets = scanPets;
+        this.ownerBytes = uuidBytes(ownerUuid);
+        this.bytesPerSecond = Math.max(64 * 1024L, BeastMasterMod.CONFIG.regionScanBytesPerSecond);
+
+        Path worldDirectory = server.getSavePath(WorldSavePath.ROOT);
+        for (ServerWorld world : server.getWorlds()) {
+            Path dimensionDirectory = DimensionType.getSaveDirectory(world.getRegistryKey(), worldDirectory);
+            dimensions.add(new Dimension(world.getRegistryKey(), dimensionDirectory.resolve("entities")));
+        }
+    }
+
+    // Returns false if this player already has a scan running
+    public static boolean start(ServerPlayerEntity player, boolean scanPets) {
+        if (!activeScans.add(player.getUuid())) {
+            return false;
+        }
+
+        RegionScanner scanner = new RegionScanner(player, scanPets);
+        EXECUTOR.execute(() -> {
+            try {
+                scanner.run();
+            } catch (Exception e) {
+                LOGGER.error("Region scan for {} failed", scanner.ownerUuid, e);
+                scanner.server.execute(() -> scanner.report(-1));
+            } finally {
+                activeScans.remove(scanner.ownerUuid);
+            }
+        });
+        return true;
+    }
+
+    private void run() throws IOException {
+        startNanos = System.nanoTime();
+        int[] registered = {0};
+
+        for (Dimension dimension : dimensions) {
+            if (!Files.isDirectory(dimension.entitiesDirectory())) continue;
+
+            try (DirectoryStream<Path> regions = Files.newDirectoryStream(dimension.entitiesDirectory(), "r.*.mca")) {
+                for (Path region : regions) {
+                    List<NbtCompound> found = scanRegion(region);
+                    regionsScanned++;
+                    if (!found.isEmpty()) {
+                        server.execute(() -> registered[0] += register(dimension.key(), found));
+                    }
+                }
+            }
+        }
+
+        // Queued after every register() task, so the count is final by the time it runs
+        server.execute(() -> report(registered[0]));
+    }
+
+    private List<NbtCompound> scanRegion(Path region) {
+        List<NbtCompound> found = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(region, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_ENTRIES * 4);
+            if (readFully(channel, header, 0) < header.capacity()) {
+                return found; // Empty or truncated file
+            }
+            header.flip();
+
+            for (int i = 0; i < HEADER_ENTRIES; i++) {
+                int location = header.getInt(i * 4);
+                int sectorOffset = location >>> 8;
+                int sectorCount = location & 0xFF;
+                if (sectorOffset < 2 || sectorCount == 0) continue;
+
+                // One corrupt chunk shouldn't cost the rest of the region
+                try {
+                    ByteBuffer chunk = ByteBuffer.allocate(sectorCount * SECTOR_SIZE);
+                    int read = readFully(channel, chunk, (long) sectorOffset * SECTOR_SIZE);
+                    throttle(read);
+                    if (read < 5) continue;
+
+                    chunk.flip();
+                    int length = chunk.getInt();
+                    int compression = chunk.get() & 0xFF;
+                    if (length <= 1 || length - 1 > chunk.remaining() || (compression & EXTERNAL_FLAG) != 0) continue;
+
+                    byte[] data = decompress(chunk.array(), 5, length - 1, compression);
+                    // Cheap rejection before building any NBT: the owner's UUID is stored as 16 raw bytes
+                    if (data == null || indexOf(data, ownerBytes) < 0) continue;
+
+                    chunksParsed++;
+                    NbtCompound chunkNbt = NbtIo.read(new DataInputStream(new ByteArrayInputStream(data)));
+                    collectOwned(chunkNbt.getList("Entities", 10), found);
+                } catch (ClosedChannelException e) {
+                    // The file itself is gone, e.g. the scan was interrupted
+                    throw e;
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Skipping unreadable chunk {} in entity region {}", i, region, e);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Skipping unreadable entity region {}", region, e);
+        }
+        return found;
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) break;
+            total += read;
+        }
+        return total;
+    }
+
+    private static byte[] decompress(byte[] buffer, int offset, int length, int compression) throws IOException {
+        InputStream raw = new ByteArrayInputStream(buffer, offset, length);
+        InputStream input = switch (compression) {
+            case COMPRESSION_GZIP -> new GZIPInputStream(raw);
+            case COMPRESSION_ZLIB -> new InflaterInputStream(raw);
+            case COMPRESSION_NONE -> raw;
+            default -> null;
+        };
+        if (input == null) return null;
+
+        try (input) {
+            return input.readAllBytes();
+        }
+    }
+
+    private void collectOwned(NbtList entities, List<NbtCompound> found) {
+        for (int i = 0; i < entities.size(); i++) {
+            NbtCompound entity = entities.getCompound(i);
+            if (entity.containsUuid("Owner") && ownerUuid.equals(entity.getUuid("Owner")) && entity.containsUuid("UUID")) {
+                found.add(entity);
+            }
+            // A pet can be riding something, or carrying a rider of its own
+            if (entity.contains("Passengers", 9)) {
+                collectOwned(entity.getList("Passengers", 10), found);
+            }
+        }
+    }
+
+    // Sleep off any bytes read ahead of the configured rate
+    private void throttle(int read) {
+        bytesRead += read;
+        long expectedNanos = bytesRead * 1_000_000_000L / bytesPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos > 1_000_000L) {
+            try {
+                Thread.sleep(aheadNanos / 1_000_000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Runs on the server thread
+    private int register(RegistryKey<World> dimension, List<NbtCompound> found) {
+        PackManager manager = PackManager.get(server);
+        ServerWorld world = server.getWorld(dimension);
+        int registered = 0;
+
+        for (NbtCompound entityNbt : found) {
+            UUID entityUuid = entityNbt.getUuid("UUID");
+            // A loaded entity is newer than what's on disk, and the regular hooks already track it
+            if (world != null && world.getEntity(entityUuid) != null) continue;
+
+            // The entity registry falls back to pigs for unknown ids, so check first
+            Identifier id = Identifier.tryParse(entityNbt.getString("id"));
+            if (id == null || !Registry.ENTITY_TYPE.containsId(id)) continue;
+            EntityType<?> type = Registry.ENTITY_TYPE.get(id);
+            boolean isPet = BeastConfig.isSupportedPetType(type);
+            if (isPet != scanPets || (!isPet && !BeastConfig.isSupportedMountType(type))) continue;
+
+            NbtList pos = entityNbt.getList("Pos", 6); // 6 = DOUBLE type
+            if (pos.size() < 3) continue;
+
+            String customName = null;
+            if (entityNbt.contains("CustomName", 8)) {
+                try {
+                    Text name = Text.Serializer.fromJson(entityNbt.getString("CustomName"));
+                    customName = name != null ? name.getString() : null;
+                } catch (Exception e) {
+                    LOGGER.debug("Ignoring malformed custom name on {}", entityUuid);
+                }
+            }
+
+            if (manager.registerSnapshot(entityUuid, ownerUuid, dimension,
+                    pos.getDouble(0), pos.getDouble(1), pos.getDouble(2), isPet, entityNbt, customName)) {
+                registered++;
+            }
+        }
+        return registered;
+    }
+
+    private void report(int registered) {
+        ServerPlayerEntity player = server.getPlayerManager().getPlayer(ownerUuid);
+        String typeName = scanPets ? "pets" : "mounts";
+        if (registered < 0) {
+            LOGGER.info("Region scan for {} aborted after {} regions", ownerUuid, regionsScanned);
+            if (player != null) {
+                player.sendMessage(Text.of("§cThe scan for your " + typeName + " failed, see the server log."), false);
+            }
+            return;
+        }
+
+        LOGGER.info("Region scan for {}: {} regions, {} chunks parsed, {} KiB read, {} {} registered",
+            ownerUuid, regionsScanned, chunksParsed, bytesRead / 1024, registered, typeName);
+        if (player != null) {
+            player.sendMessage(Text.of("§aScan complete: " + registered + " new " + typeName +
+                " found in unloaded areas (" + regionsScanned + " region files checked)."), false);
+        }
+    }
+
+    private static byte[] uuidBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .array();
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+}
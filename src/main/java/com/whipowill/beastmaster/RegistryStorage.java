@@ -0,0 +1,218 @@
+package com.whipowill.beastmaster;
+
+import com.whipowill.beastmaster.jfr.RegistryLoadEvent;
+import com.whipowill.beastmaster.jfr.RegistrySaveEvent;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Off-thread persistence for the companion registry, sharded into one file per owner under
+// data/beastmaster/<owner-uuid>.dat. The server thread hands over immutable snapshots of the shards
+// that changed; encoding, compression and the atomic file replace happen on a single background
+// thread, which also serves shard reads so a read always sees every write queued before it.
+public class RegistryStorage {
+    private static final Logger LOGGER = LoggerFactory.getLogger("PackManager");
+    private static final String SHARD_SUFFIX = ".dat";
+    // Single-file layout used before the registry was sharded
+    private static final String LEGACY_FILE_NAME = "registry.dat";
+    private static final String ENTRIES_KEY = "entries";
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private static final Set<RegistryStorage> openStorages = ConcurrentHashMap.newKeySet();
+
+    // Entries are owned by the writer after hand-off; the server thread never mutates them again.
+    // An empty shard list deletes that owner's file.
+    public record Delta(Map<UUID, List<NbtCompound>> shards, boolean clearAll, boolean dropLegacyFile) {
+        public boolean isEmpty() {
+            return shards.isEmpty() && !clearAll && !dropLegacyFile;
+        }
+    }
+
+    private final Path directory;
+    private final ExecutorService executor;
+
+    public RegistryStorage(Path directory) {
+        this.directory = directory;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BeastMaster-Storage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        openStorages.add(this);
+    }
+
+    public CompletableFuture<List<NbtCompound>> loadShard(UUID ownerUuid) {
+        return CompletableFuture.supplyAsync(() -> {
+            Path file = shardFile(ownerUuid);
+            if (!Files.exists(file)) {
+                return new ArrayList<>();
+            }
+            RegistryLoadEvent event = new RegistryLoadEvent();
+            event.begin();
+            try {
+                List<NbtCompound> entries = readEntries(file);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.storage = "shard";
+                    event.records = entries.size();
+                    event.bytes = Files.size(file);
+                    event.commit();
+                }
+                return entries;
+            } catch (IOException e) {
+                // Surface the failure so the caller doesn't overwrite a shard it couldn't read
+                throw new RuntimeException("Error reading companion shard " + file, e);
+            }
+        }, executor);
+    }
+
+    // Synchronous read of every shard, used when switching back to vanilla saving
+    public List<NbtCompound> loadAllShards() {
+        List<NbtCompound> entries = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return entries;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SHARD_SUFFIX)) {
+            for (Path file : stream) {
+                if (file.getFileName().toString().equals(LEGACY_FILE_NAME)) continue;
+                try {
+                    entries.addAll(readEntries(file));
+                } catch (IOException e) {
+                    LOGGER.error("Error reading companion shard {}", file, e);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error listing companion shards in {}", directory, e);
+        }
+        return entries;
+    }
+
+    // Synchronous read of the pre-sharding single file, if one is still around
+    public List<NbtCompound> loadLegacyFile() {
+        Path file = directory.resolve(LEGACY_FILE_NAME);
+        if (!Files.exists(file)) {
+            return new ArrayList<>();
+        }
+        try {
+            return readEntries(file);
+        } catch (IOException e) {
+            LOGGER.error("Error reading companion registry from {}", file, e);
+            return new ArrayList<>();
+        }
+    }
+
+    public void submit(Delta delta) {
+        if (delta.isEmpty()) return;
+
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            RegistrySaveEvent event = new RegistrySaveEvent();
+            event.begin();
+            try {
+                Files.createDirectories(directory);
+                if (delta.clearAll()) {
+                    deleteAllShards();
+                }
+                for (Map.Entry<UUID, List<NbtCompound>> shard : delta.shards().entrySet()) {
+                    event.bytes += writeShard(shard.getKey(), shard.getValue());
+                    event.records += shard.getValue().size();
+                }
+                if (delta.dropLegacyFile()) {
+                    Files.deleteIfExists(directory.resolve(LEGACY_FILE_NAME));
+                }
+            } catch (IOException e) {
+                LOGGER.error("Error writing companion registry to {}", directory, e);
+            }
+            LOGGER.debug("Wrote {} companion shards in {} ms",
+                delta.shards().size(), (System.nanoTime() - start) / 1_000_000);
+            event.end();
+            if (event.shouldCommit()) {
+                event.storage = "async-write";
+                event.shards = delta.shards().size();
+                event.commit();
+            }
+        });
+    }
+
+    // Returns the size of the file written, 0 if it was deleted or the write failed
+    private long writeShard(UUID ownerUuid, List<NbtCompound> entries) {
+        Path file = shardFile(ownerUuid);
+        try {
+            if (entries.isEmpty()) {
+                Files.deleteIfExists(file);
+                return 0;
+            }
+
+            NbtList list = new NbtList();
+            list.addAll(entries);
+            NbtCompound root = new NbtCompound();
+            root.put(ENTRIES_KEY, list);
+
+            Path tempFile = directory.resolve(ownerUuid + SHARD_SUFFIX + ".tmp");
+            NbtIo.writeCompressed(root, tempFile.toFile());
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return Files.size(file);
+        } catch (IOException e) {
+            LOGGER.error("Error writing companion shard {}", file, e);
+            return 0;
+        }
+    }
+
+    private void deleteAllShards() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SHARD_SUFFIX)) {
+            for (Path file : stream) {
+                if (!file.getFileName().toString().equals(LEGACY_FILE_NAME)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private Path shardFile(UUID ownerUuid) {
+        return directory.resolve(ownerUuid + SHARD_SUFFIX);
+    }
+
+    private static List<NbtCompound> readEntries(Path file) throws IOException {
+        NbtCompound root = NbtIo.readCompressed(file.toFile());
+        NbtList list = root.getList(ENTRIES_KEY, 10);
+        List<NbtCompound> entries = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            entries.add(list.getCompound(i));
+        }
+        return entries;
+    }
+
+    public void close() {
+        openStorages.remove(this);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.error("Timed out waiting for companion registry writes to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Flush barrier for server shutdown, after the final world save has handed over its delta
+    public static void closeAll() {
+        for (RegistryStorage storage : new ArrayList<>(openStorages)) {
+            storage.close();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.whipowill.beastmaster;
+
+import com.whipowill.beastmaster.jfr.WhistleEvent;
+import net.minecraft.entity.Entity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.sound.SoundEvents;
+import net.minecraft.text.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Whistle pipeline: resolves, materializes and moves the targets a few at a time within a per-tick budget.
+// Every entity is sent to where the player is at the moment it's processed, so moving or changing
+// dimension mid-summon is fine.
+public class SummonJob implements TickJobs.Job {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BeastMaster");
+    private static final int PROGRESS_INTERVAL_TICKS = 20;
+    // Records resolved against the loaded worlds in one grouped pass
+    private static final int RESOLVE_BATCH_SIZE = 32;
+
+    private final UUID playerUuid;
+    private final boolean isPet;
+    private final boolean callAll;
+    private final String displayName;
+    private final Deque<PackManager.EntityData> queue;
+    private final Deque<PackManager.EntityData> batch = new ArrayDeque<>();
+    private Map<UUID, Entity> resolved = Map.of();
+    // Unloaded targets waiting for a retrieval slot, and those whose chunk is being loaded
+    private final Deque<PackManager.EntityData> awaitingChunk = new ArrayDeque<>();
+    private final List<ChunkRetrieval> retrievals = new ArrayList<>();
+    private final int total;
+    private final List<String> failed = new ArrayList<>();
+    private final List<UUID> dead = new ArrayList<>();
+    private int summoned = 0;
+    private int ticksRun = 0;
+    private final WhistleEvent event = new WhistleEvent();
+
+    private SummonJob(ServerPlayerEntity player, boolean isPet, List<PackManager.EntityData> targets, String name) {
+        this.playerUuid = player.getUuid();
+        this.isPet = isPet;
+        this.callAll = name.isEmpty();
+        this.displayName = callAll ? (isPet ? "all pets" : "all mounts") : "'" + name + "'";
+        this.queue = new ArrayDeque<>(targets);
+        this.total = targets.size();
+        event.begin();
+    }
+
+    public static String jobKey(UUID playerUuid) {
+        return "summon:" + playerUuid;
+    }
+
+    // An empty name means the whole pack was called
+    public static boolean start(ServerPlayerEntity player, boolean isPet, List<PackManager.EntityData> targets, String name) {
+        return TickJobs.submit(jobKey(player.getUuid()), new SummonJob(player, isPet, targets, name));
+    }
+
+    @Override
+    public boolean tick(MinecraftServer server) {
+        ServerPlayerEntity player = server.getPlayerManager().getPlayer(playerUuid);
+        if (player == null) {
+            LOGGER.debug("Dropping summon for {}: player left", playerUuid);
+            releaseRetrievals();
+            commitEvent();
+            return true;
+        }
+        if (!player.isAlive()) {
+            // Wait for the respawn rather than dropping companions at the death location
+            return false;
+        }
+
+        long deadline = System.nanoTime() + BeastMasterMod.CONFIG.summonTickBudgetMillis * 1_000_000L;
+        ticksRun++;
+
+        // Always make progress, even if the budget is already spent
+        do {
+            if (batch.isEmpty()) {
+                if (queue.isEmpty()) break;
+                resolveNextBatch(server);
+            }
+            PackManager.EntityData entityData = batch.poll();
+            summonOne(server, player, entityData, resolved.get(entityData.entityUuid));
+        } while (System.nanoTime() < deadline);
+
+        tickRetrievals(server, player);
+
+        if (queue.isEmpty() && batch.isEmpty() && awaitingChunk.isEmpty() && retrievals.isEmpty()) {
+            finish(server, player);
+            return true;
+        }
+
+        if (ticksRun % PROGRESS_INTERVAL_TICKS == 0) {
+            int remaining = queue.size() + batch.size() + awaitingChunk.size() + retrievals.size();
+            player.sendMessage(Text.of("§7Calling " + displayName + "... " + (total - remaining) + "/" + total), true);
+        }
+        return false;
+    }
+
+    @Override
+    public void cancel(MinecraftServer server) {
+        releaseRetrievals();
+        commitEvent();
+    }
+
+    private void tickRetrievals(MinecraftServer server, ServerPlayerEntity player) {
+        Iterator<ChunkRetrieval> iterator = retrievals.iterator();
+        while (iterator.hasNext()) {
+            ChunkRetrieval retrieval = iterator.next();
+            Entity entity = retrieval.poll();
+            if (entity == null && !retrieval.isTimedOut()) continue;
+
+            // Move it before the ticket goes, or the chunk may unload again with the entity in it
+            if (entity != null) {
+                if (summonLoaded(player, retrieval.entityData, entity)) {
+                    event.retrieved++;
+                }
+            } else {
+                LOGGER.debug("Entity {} did not load in time, using its snapshot", retrieval.entityData.entityUuid);
+                summonFromSnapshot(server, player, retrieval.entityData);
+            }
+            retrieval.release();
+            iterator.remove();
+        }
+
+        while (!awaitingChunk.isEmpty() && ChunkRetrieval.hasFreeSlot()) {
+            PackManager.EntityData entityData = awaitingChunk.poll();
+            ChunkRetrieval retrieval = ChunkRetrieval.start(server, entityData);
+            if (retrieval != null) {
+                retrievals.add(retrieval);
+            } else {
+                summonFromSnapshot(server, player, entityData);
+            }
+        }
+    }
+
+    private void commitEvent() {
+        event.end();
+        if (event.shouldCommit()) {
+            event.owner = playerUuid.toString();
+            event.role = isPet ? "pet" : "mount";
+            event.named = !callAll;
+            event.targets = total;
+            event.failed = failed.size();
+            event.dead = dead.size();
+            event.commit();
+        }
+    }
+
+    private void releaseRetrievals() {
+        for (ChunkRetrieval retrieval : retrievals) {
+            retrieval.release();
+        }
+        retrievals.clear();
+        awaitingChunk.clear();
+    }
+
+    private void resolveNextBatch(MinecraftServer server) {
+        for (int i = 0; i < RESOLVE_BATCH_SIZE && !queue.isEmpty(); i++) {
+            batch.add(queue.poll());
+        }
+        PerfMonitor.begin(PerfMonitor.Section.WHISTLE_RESOLVE);
+        resolved = EntityResolver.resolveAll(server, batch);
+        PerfMonitor.end(PerfMonitor.Section.WHISTLE_RESOLVE);
+    }
+
+    private void summonOne(MinecraftServer server, ServerPlayerEntity player, PackManager.EntityData entityData, Entity entity) {
+        String entityName = entityData.customName != null ? entityData.customName : "Noname";
+        try {
+            // The batch may have been resolved a few ticks ago; look again if it unloaded or changed dimension
+            if (entity != null && entity.isRemoved() && !entity.getRemovalReason().shouldDestroy()) {
+                entity = EntityResolver.resolve(server, entityData);
+            }
+
+            if (entity != null) {
+                if (summonLoaded(player, entityData, entity)) {
+                    event.loaded++;
+                }
+            } else if (BeastMasterMod.CONFIG.retrieveFromChunks) {
+                // Fetch the real entity from its chunk; the snapshot is only a fallback
+                awaitingChunk.add(entityData);
+            } else {
+                summonFromSnapshot(server, player, entityData);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error processing {} {}", isPet ? "pet" : "mount", entityData.entityUuid, e);
+            failed.add(entityName);
+        }
+    }
+
+    // True if the entity now stands next to the player
+    private boolean summonLoaded(ServerPlayerEntity player, PackManager.EntityData entityData, Entity entity) {
+        if (!entity.isAlive()) {
+            dead.add(entityData.entityUuid);
+            return false;
+        }
+
+        boolean isCorrectType = isPet ? BeastConfig.isSupportedPet(entity) : BeastConfig.isSupportedMount(entity);
+        if (!isCorrectType) return false;
+
+        PerfMonitor.begin(PerfMonitor.Section.WHISTLE_SPAWN);
+        Entity moved = BeastCommand.moveEntityToPlayer(entity, player);
+        PerfMonitor.end(PerfMonitor.Section.WHISTLE_SPAWN);
+        if (moved != null) {
+            summoned++;
+            return true;
+        }
+        failed.add(entityData.customName != null ? entityData.customName : "Noname");
+        return false;
+    }
+
+    private void summonFromSnapshot(MinecraftServer server, ServerPlayerEntity player, PackManager.EntityData entityData) {
+        PerfMonitor.begin(PerfMonitor.Section.WHISTLE_SPAWN);
+        Entity spawned = BeastCommand.loadAndTeleportEntity(server, entityData, player);
+        PerfMonitor.end(PerfMonitor.Section.WHISTLE_SPAWN);
+        if (spawned != null) {
+            summoned++;
+            event.materialized++;
+        } else {
+            failed.add(entityData.customName != null ? entityData.customName : "Noname");
+        }
+    }
+
+    private void finish(MinecraftServer server, ServerPlayerEntity player) {
+        String type = isPet ? "pet" : "mount";
+
+        // Remove dead entities from tracking
+        BeastCommand.removeDeadEntities(server, dead, player);
+        commitEvent();
+
+        if (summoned == 0) {
+            if (!failed.isEmpty()) {
+                player.sendMessage(Text.of("§cFailed to call " + failed.size() + " " + type + (failed.size() > 1 ? "s" : "")), false);
+            }
+            return;
+        }
+
+        BeastCommand.sendSummonResult(player, summoned, failed, callAll ? displayName : type, displayName);
+
+        player.getWorld().playSound(null, player.getBlockPos(),
+            isPet ? SoundEvents.ENTITY_WOLF_WHINE : SoundEvents.ENTITY_HORSE_GALLOP,
+            player.getSoundCategory(), 1.0f, 1.0f);
+    }
+}
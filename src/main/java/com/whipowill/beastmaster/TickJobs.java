@@ -0,0 +1,114 @@
+package com.whipowill.beastmaster;
+
+import net.minecraft.server.MinecraftServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Runs long operations a slice at a time on the server thread instead of in a single tick
+public class TickJobs {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BeastMaster");
+
+    public interface Job {
+        // Do one slice of work within the job's own budget; return true when finished
+        boolean tick(MinecraftServer server);
+
+        // Called when the job is dropped before finishing (server stop, replaced, error)
+        default void cancel(MinecraftServer server) {
+        }
+    }
+
+    private static final Map<String, Job> activeJobs = new LinkedHashMap<>();
+    // A job's tick can submit or cancel jobs, e.g. through ENTITY_LOAD when a summon spawns an entity.
+    // Those changes wait here until the loop over activeJobs is done.
+    private static final Map<String, Job> submittedWhileTicking = new LinkedHashMap<>();
+    private static final Set<String> cancelledWhileTicking = new HashSet<>();
+    private static boolean ticking = false;
+
+    // Returns false if a job with the same key is still running
+    public static boolean submit(String key, Job job) {
+        if (isRunning(key)) {
+            return false;
+        }
+        if (ticking) {
+            submittedWhileTicking.put(key, job);
+        } else {
+            activeJobs.put(key, job);
+        }
+        return true;
+    }
+
+    public static boolean isRunning(String key) {
+        return (activeJobs.containsKey(key) && !cancelledWhileTicking.contains(key)) ||
+            submittedWhileTicking.containsKey(key);
+    }
+
+    public static void tick(MinecraftServer server) {
+        if (activeJobs.isEmpty()) return;
+
+        ticking = true;
+        try {
+            Iterator<Map.Entry<String, Job>> iterator = activeJobs.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Job> entry = iterator.next();
+                if (cancelledWhileTicking.contains(entry.getKey())) continue;
+                try {
+                    if (entry.getValue().tick(server)) {
+                        iterator.remove();
+                    }
+                } catch (Exception e) {
+                    LOGGER.error("Error running job {}", entry.getKey(), e);
+                    iterator.remove();
+                    entry.getValue().cancel(server);
+                }
+            }
+        } finally {
+            ticking = false;
+            for (String key : cancelledWhileTicking) {
+                Job job = activeJobs.remove(key);
+                if (job != null) {
+                    job.cancel(server);
+                }
+            }
+            cancelledWhileTicking.clear();
+            activeJobs.putAll(submittedWhileTicking);
+            submittedWhileTicking.clear();
+        }
+    }
+
+    // Drops a running job early, e.g. one started by a game test scenario that has ended
+    public static void cancel(MinecraftServer server, String key) {
+        Job submitted = submittedWhileTicking.remove(key);
+        if (submitted != null) {
+            submitted.cancel(server);
+            return;
+        }
+        if (ticking) {
+            if (activeJobs.containsKey(key)) {
+                cancelledWhileTicking.add(key);
+            }
+            return;
+        }
+        Job job = activeJobs.remove(key);
+        if (job != null) {
+            job.cancel(server);
+        }
+    }
+
+    public static void clear(MinecraftServer server) {
+        for (Job job : activeJobs.values()) {
+            job.cancel(server);
+        }
+        for (Job job : submittedWhileTicking.values()) {
+            job.cancel(server);
+        }
+        activeJobs.clear();
+        submittedWhileTicking.clear();
+        cancelledWhileTicking.clear();
+    }
+}
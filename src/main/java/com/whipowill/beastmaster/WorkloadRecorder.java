@@ -0,0 +1,162 @@
+package com.whipowill.beastmaster;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.entity.damage.DamageSource;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.command.ServerCommandSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Opt-in recording of the mod's inputs to a WorkloadTrace under beastmaster-traces/, for replaying
+// offline with WorkloadReplayer. The hooks only build a small record and queue it; a background
+// thread does the encoding and I/O. If the writer falls behind, events are dropped rather than
+// holding up the server, and the count is logged when recording stops.
+public class WorkloadRecorder {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BeastMaster");
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // Tells the writer thread to close the file
+    private static final WorkloadTrace.Event END = new WorkloadTrace.Command(-1, null, null);
+
+    // Server thread only
+    private static boolean recording = false;
+    private static MinecraftServer server = null;
+    private static BlockingQueue<WorkloadTrace.Event> queue = null;
+    private static Thread writerThread = null;
+    private static Path currentFile = null;
+    private static long recorded = 0;
+    private static long dropped = 0;
+
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    public static Path getTraceDirectory(MinecraftServer server) {
+        return server.getRunDirectory().toPath().resolve("beastmaster-traces");
+    }
+
+    public static Path start(MinecraftServer server) throws IOException {
+        if (recording) return currentFile;
+
+        Path directory = getTraceDirectory(server);
+        Files.createDirectories(directory);
+        Path file = directory.resolve("trace-" + LocalDateTime.now().format(FILE_TIME) + ".bmt");
+        WorkloadTrace.Writer writer = new WorkloadTrace.Writer(file);
+
+        BlockingQueue<WorkloadTrace.Event> events = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        writerThread = new Thread(() -> writeLoop(writer, events), "BeastMaster-Recorder");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        WorkloadRecorder.server = server;
+        queue = events;
+        currentFile = file;
+        recorded = 0;
+        dropped = 0;
+        recording = true;
+        LOGGER.info("Recording workload to {}", file);
+        return file;
+    }
+
+    // Returns the finished trace, or null if nothing was being recorded
+    public static Path stop() {
+        if (!recording) return null;
+        recording = false;
+
+        // The writer drains everything queued before the marker; room for it is guaranteed by blocking
+        try {
+            queue.put(END);
+            writerThread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("Stopped recording to {}: {} events, {} dropped", currentFile, recorded, dropped);
+
+        Path file = currentFile;
+        server = null;
+        queue = null;
+        writerThread = null;
+        currentFile = null;
+        return file;
+    }
+
+    public static long getRecorded() {
+        return recorded;
+    }
+
+    public static long getDropped() {
+        return dropped;
+    }
+
+    private static void writeLoop(WorkloadTrace.Writer writer, BlockingQueue<WorkloadTrace.Event> events) {
+        boolean failed = false;
+        try (writer) {
+            while (true) {
+                WorkloadTrace.Event event = events.take();
+                if (event == END) break;
+                if (failed) continue;
+
+                try {
+                    writer.write(event);
+                } catch (IOException e) {
+                    // Keep draining so the server thread never waits on a full queue
+                    LOGGER.error("Failed to write workload trace, further events are discarded", e);
+                    failed = true;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to close workload trace", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void record(WorkloadTrace.Event event) {
+        if (queue.offer(event)) {
+            recorded++;
+        } else {
+            dropped++;
+        }
+    }
+
+    private static String dimension(Entity entity) {
+        return entity.getWorld().getRegistryKey().getValue().toString();
+    }
+
+    public static void recordUseEntity(PlayerEntity player, Entity entity) {
+        record(new WorkloadTrace.UseEntity(server.getTicks(), player.getUuid(), entity.getUuid(),
+            EntityType.getId(entity.getType()).toString(), BeastMasterMod.getOwnerUuid(entity),
+            dimension(entity), (float) entity.getX(), (float) entity.getY(), (float) entity.getZ()));
+    }
+
+    public static void recordEntityLoad(Entity entity, UUID ownerUuid) {
+        String name = entity.hasCustomName() ? entity.getCustomName().getString() : null;
+        record(new WorkloadTrace.EntityLoad(server.getTicks(), entity.getUuid(), ownerUuid,
+            EntityType.getId(entity.getType()).toString(), dimension(entity),
+            (float) entity.getX(), (float) entity.getY(), (float) entity.getZ(), name));
+    }
+
+    public static void recordCommand(ServerCommandSource source, String command) {
+        Entity entity = source.getEntity();
+        record(new WorkloadTrace.Command(server.getTicks(), entity != null ? entity.getUuid() : null, command));
+    }
+
+    public static void recordDamage(LivingEntity entity, UUID ownerUuid, DamageSource source, float amount) {
+        Entity attacker = source.getAttacker();
+        record(new WorkloadTrace.Damage(server.getTicks(), entity.getUuid(),
+            EntityType.getId(entity.getType()).toString(), ownerUuid, entity.getHealth(), amount,
+            source.getName(), attacker != null ? attacker.getUuid() : null));
+    }
+}
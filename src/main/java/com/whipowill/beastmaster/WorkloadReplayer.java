@@ -0,0 +1,276 @@
+package com.whipowill.beastmaster;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.entity.EntityType;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtDouble;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.registry.Registry;
+import net.minecraft.util.registry.RegistryKey;
+import net.minecraft.world.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Replays a WorkloadTrace against a fresh, standalone PackManager on its own thread and reports
+// latency and allocation per event type. Each event goes through the same PackManager, DamageRules and
+// BeastCommand methods as the live hooks, minus the world: entities are represented by a synthetic
+// snapshot seeded from their UUID, so the same trace always does the same work. Live server state is
+// never touched. Runs in game through /beast replay, or without a server through main() (see the
+// replayTrace Gradle task).
+public class WorkloadReplayer {
+    private static final Logger LOGGER = LoggerFactory.getLogger("BeastMaster");
+    private static final int HISTOGRAM_WINDOW = 1 << 16;
+
+    private final PackManager manager = new PackManager();
+    private final Map<String, PerfMonitor.Histogram> histograms = new LinkedHashMap<>();
+    private long events = 0;
+    private long skipped = 0;
+    private long damageCancelled = 0;
+
+    private WorkloadReplayer() {
+    }
+
+    // Runs on the caller's thread; the result lines are also logged
+    public static List<String> replay(Path file) throws IOException {
+        List<String> report = run(file);
+        for (String line : report) {
+            LOGGER.info(stripFormatting(line));
+        }
+        return report;
+    }
+
+    // Offline replay on a dev machine: bootstraps the vanilla registries and reads config/beastmaster.json
+    // from the working directory, falling back to the defaults. Without a server no datapacks are loaded,
+    // so '#tag' entries in the config match nothing.
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: WorkloadReplayer <trace file>");
+            System.exit(1);
+        }
+
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        try {
+            BeastMasterMod.CONFIG = BeastConfig.read();
+        } catch (IOException e) {
+            LOGGER.warn("Replaying with the default config: {}", e.getMessage());
+            BeastMasterMod.CONFIG = new BeastConfig().withResolvedRoles();
+        }
+
+        for (String line : run(Path.of(args[0]))) {
+            System.out.println(stripFormatting(line));
+        }
+    }
+
+    private static List<String> run(Path file) throws IOException {
+        WorkloadReplayer replayer = new WorkloadReplayer();
+        long started = System.nanoTime();
+        try (WorkloadTrace.Reader reader = new WorkloadTrace.Reader(file)) {
+            WorkloadTrace.Event event;
+            while ((event = reader.next()) != null) {
+                replayer.apply(event);
+            }
+        }
+        return replayer.report(file, System.nanoTime() - started);
+    }
+
+    private static String stripFormatting(String line) {
+        return line.replaceAll("§.", "");
+    }
+
+    // Replays on a background thread and hands the report (or the error) to the callback
+    public static void replayAsync(Path file, Consumer<List<String>> callback) {
+        Thread thread = new Thread(() -> {
+            try {
+                callback.accept(replay(file));
+            } catch (Exception e) {
+                LOGGER.error("Failed to replay {}", file, e);
+                callback.accept(List.of("§cReplay failed: " + e.getMessage()));
+            }
+        }, "BeastMaster-Replay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void apply(WorkloadTrace.Event event) {
+        events++;
+        if (event instanceof WorkloadTrace.EntityLoad e) {
+            measure("entity load", () -> onEntityLoad(e));
+        } else if (event instanceof WorkloadTrace.UseEntity e) {
+            measure("use entity", () -> onUseEntity(e));
+        } else if (event instanceof WorkloadTrace.Damage e) {
+            measure("damage", () -> onDamage(e));
+        } else if (event instanceof WorkloadTrace.Command e) {
+            onCommand(e);
+        }
+    }
+
+    private void measure(String label, Runnable work) {
+        PerfMonitor.Histogram histogram = histograms.computeIfAbsent(label, key -> new PerfMonitor.Histogram(HISTOGRAM_WINDOW));
+        histogram.begin();
+        try {
+            work.run();
+        } catch (Exception e) {
+            LOGGER.debug("Replayed {} failed", label, e);
+        } finally {
+            histogram.end();
+        }
+    }
+
+    // ENTITY_LOAD: the live hook's registry logic, without finishing a pending action on an entity
+    private void onEntityLoad(WorkloadTrace.EntityLoad e) {
+        EntityType<?> type = type(e.entityType());
+        if (e.owner() == null || type == null) return;
+
+        manager.onCompanionLoaded(e.entity(), () ->
+            store(e.entity(), e.owner(), type, e.dimension(), e.x(), e.y(), e.z(), e.name()));
+    }
+
+    // UseEntityCallback: every interaction by the owner refreshes the snapshot
+    private void onUseEntity(WorkloadTrace.UseEntity e) {
+        EntityType<?> type = type(e.entityType());
+        if (type == null || !e.player().equals(e.owner())) return;
+
+        // Interactions aren't recorded with a name, so keep the one registered
+        String name = manager.getEntityData(e.entity()).map(data -> data.customName).orElse(null);
+        store(e.entity(), e.owner(), type, e.dimension(), e.x(), e.y(), e.z(), name);
+    }
+
+    private void onDamage(WorkloadTrace.Damage e) {
+        EntityType<?> type = type(e.entityType());
+        if (type == null || e.owner() == null) return;
+
+        boolean isPet = BeastConfig.isSupportedPetType(type);
+        DamageRules.Outcome outcome = DamageRules.decide(BeastMasterMod.CONFIG, isPet, !isPet, e.owner(), e.attacker(),
+            e.health(), e.amount());
+        if (outcome != DamageRules.Outcome.ALLOW) {
+            damageCancelled++;
+        }
+    }
+
+    private void onCommand(WorkloadTrace.Command e) {
+        // beast <pet|mount> <action> [name]
+        String[] parts = e.command().split(" ", 4);
+        if (e.player() == null || parts.length < 3 || !(parts[1].equals("pet") || parts[1].equals("mount"))) {
+            skipped++;
+            return;
+        }
+        boolean pets = parts[1].equals("pet");
+        String name = parts.length > 3 ? parts[3] : "";
+
+        switch (parts[2]) {
+            case "whistle" -> measure("command whistle", () -> whistle(e.player(), pets, name));
+            case "list" -> measure("command list", () ->
+                BeastCommand.listLines(pets ? manager.getPetsByOwner(e.player()) : manager.getMountsByOwner(e.player()),
+                    pets ? "pets" : "mounts"));
+            case "setfree" -> measure("command setfree", () -> queueAction(e.player(), pets, name, PackManager.PendingAction.RELEASE));
+            case "dismiss" -> measure("command dismiss", () -> queueAction(e.player(), pets, name, PackManager.PendingAction.DISCARD));
+            default -> skipped++;
+        }
+    }
+
+    // Target lookup plus what the snapshot path costs per target; there is no world to move entities in
+    private void whistle(UUID owner, boolean pets, String name) {
+        for (PackManager.EntityData target : BeastCommand.whistleTargets(manager, owner, pets, name)) {
+            try {
+                target.getEntityNbt();
+            } catch (IOException e) {
+                LOGGER.debug("Could not inflate snapshot of {}", target.entityUuid, e);
+            }
+        }
+    }
+
+    // Nothing is loaded here, so setfree and dismiss take the unloaded-companion path
+    private void queueAction(UUID owner, boolean pets, String name, PackManager.PendingAction action) {
+        if (!BeastCommand.isExactName(name)) return;
+
+        BeastCommand.Target target = BeastCommand.selectTarget(manager, owner, pets, name, entityData -> null);
+        if (target != null) {
+            BeastCommand.queuePendingAction(manager, target.data().entityUuid, action);
+        }
+    }
+
+    // Supported entity type, or null
+    private static EntityType<?> type(String entityType) {
+        Optional<EntityType<?>> type = EntityType.get(entityType);
+        if (type.isEmpty()) return null;
+        if (BeastConfig.isSupportedPetType(type.get()) || BeastConfig.isSupportedMountType(type.get())) {
+            return type.get();
+        }
+        return null;
+    }
+
+    // Goes through the same fingerprint check as storeEntityNbt. Traces only carry position and name,
+    // so that is all the fingerprint covers here.
+    private void store(UUID entity, UUID owner, EntityType<?> type, String dimension, float x, float y, float z, String name) {
+        RegistryKey<World> dimensionKey = RegistryKey.of(Registry.WORLD_KEY, new Identifier(dimension));
+        long fingerprint = PackManager.baseFingerprint(MathHelper.floor(x), MathHelper.floor(y), MathHelper.floor(z), name);
+        String entityType = EntityType.getId(type).toString();
+        try {
+            manager.store(new PackManager.Observation(entity, owner, dimensionKey, x, y, z,
+                BeastConfig.isSupportedPetType(type), fingerprint, name, type,
+                () -> syntheticNbt(entity, owner, entityType, x, y, z, name)));
+        } catch (IOException e) {
+            LOGGER.debug("Could not snapshot {}", entity, e);
+        }
+    }
+
+    // Roughly the size and shape of a real companion's saveNbt, identical for every replay of the trace
+    private static NbtCompound syntheticNbt(UUID entity, UUID owner, String entityType, double x, double y, double z, String name) {
+        Random random = new Random(entity.getLeastSignificantBits());
+        NbtCompound nbt = new NbtCompound();
+        nbt.putString("id", entityType);
+        nbt.putUuid("UUID", entity);
+        nbt.putUuid("Owner", owner);
+        nbt.putFloat("Health", 1 + random.nextInt(30));
+        if (name != null) {
+            nbt.putString("CustomName", "{\"text\":\"" + name.replace("\"", "\\\"") + "\"}");
+        }
+
+        NbtList pos = new NbtList();
+        pos.add(NbtDouble.of(x));
+        pos.add(NbtDouble.of(y));
+        pos.add(NbtDouble.of(z));
+        nbt.put("Pos", pos);
+
+        NbtList attributes = new NbtList();
+        for (String attributeName : new String[] {"minecraft:generic.max_health", "minecraft:generic.movement_speed",
+                "minecraft:generic.jump_strength", "minecraft:generic.follow_range"}) {
+            NbtCompound attribute = new NbtCompound();
+            attribute.putString("Name", attributeName);
+            attribute.putDouble("Base", random.nextDouble() * 30);
+            attributes.add(attribute);
+        }
+        nbt.put("Attributes", attributes);
+        return nbt;
+    }
+
+    private List<String> report(Path file, long elapsedNanos) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("§6=== Replay of %s: %d events in %.1f ms ===", file.getFileName(), events, elapsedNanos / 1_000_000.0));
+        for (Map.Entry<String, PerfMonitor.Histogram> entry : histograms.entrySet()) {
+            PerfMonitor.Stats stats = entry.getValue().getStats(entry.getKey());
+            String allocation = PerfMonitor.isAllocationTracked() ? ", ~" + stats.avgAllocatedBytes() / 1024 + " KiB alloc" : "";
+            lines.add(String.format("§6%s: §f%d, p50 %.1f µs, p99 %.1f µs, max %.1f µs%s",
+                stats.label(), stats.count(), stats.p50Nanos() / 1000.0, stats.p99Nanos() / 1000.0,
+                stats.maxNanos() / 1000.0, allocation));
+        }
+        lines.add("§7Registry afterwards: " + manager.getAllEntities().size() + " companions, " +
+            damageCancelled + " damage events cancelled, " + skipped + " commands not replayable");
+        return lines;
+    }
+}
@@ -0,0 +1,244 @@
+package com.whipowill.beastmaster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Binary format of the workload traces written by WorkloadRecorder and read by WorkloadReplayer.
+//
+// A gzipped stream of: int magic, short version, then events. Each event is a type byte, the server
+// ticks since the previous event as a varint, and its fields. Entity types, dimensions and damage
+// sources go through a table built as the stream is written: the first use writes the next index
+// followed by the string, later uses only the index. Index 0 is null. Command lines and custom names
+// are nearly all distinct, so they are written inline as a presence byte and the string, which keeps
+// the table as small as the set of registered ids. Missing UUIDs are written as all zeroes and
+// positions as floats.
+public final class WorkloadTrace {
+    private static final int MAGIC = 0x424D5754; // "BMWT"
+    private static final short VERSION = 2;
+    private static final UUID NO_UUID = new UUID(0, 0);
+
+    private static final byte USE_ENTITY = 1;
+    private static final byte ENTITY_LOAD = 2;
+    private static final byte COMMAND = 3;
+    private static final byte DAMAGE = 4;
+
+    private WorkloadTrace() {
+    }
+
+    public sealed interface Event permits UseEntity, EntityLoad, Command, Damage {
+        int tick();
+    }
+
+    // A player right-clicked a supported entity
+    public record UseEntity(int tick, UUID player, UUID entity, String entityType, UUID owner,
+                            String dimension, float x, float y, float z) implements Event {}
+
+    // A companion was added to a world: chunk load, spawn or dimension change
+    public record EntityLoad(int tick, UUID entity, UUID owner, String entityType, String dimension,
+                             float x, float y, float z, String name) implements Event {}
+
+    // A /beast command as typed, without the leading slash
+    public record Command(int tick, UUID player, String command) implements Event {}
+
+    // Damage dealt to a companion, before the mod decides whether to cancel it
+    public record Damage(int tick, UUID entity, String entityType, UUID owner, float health, float amount,
+                         String source, UUID attacker) implements Event {}
+
+    public static class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private int lastTick = -1;
+
+        public Writer(Path file) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file))));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+        }
+
+        public void write(Event event) throws IOException {
+            if (event instanceof UseEntity e) {
+                writeHeader(USE_ENTITY, e.tick());
+                writeUuid(e.player());
+                writeUuid(e.entity());
+                writeString(e.entityType());
+                writeUuid(e.owner());
+                writePosition(e.dimension(), e.x(), e.y(), e.z());
+            } else if (event instanceof EntityLoad e) {
+                writeHeader(ENTITY_LOAD, e.tick());
+                writeUuid(e.entity());
+                writeUuid(e.owner());
+                writeString(e.entityType());
+                writePosition(e.dimension(), e.x(), e.y(), e.z());
+                writeInline(e.name());
+            } else if (event instanceof Command e) {
+                writeHeader(COMMAND, e.tick());
+                writeUuid(e.player());
+                writeInline(e.command());
+            } else if (event instanceof Damage e) {
+                writeHeader(DAMAGE, e.tick());
+                writeUuid(e.entity());
+                writeString(e.entityType());
+                writeUuid(e.owner());
+                out.writeFloat(e.health());
+                out.writeFloat(e.amount());
+                writeString(e.source());
+                writeUuid(e.attacker());
+            }
+        }
+
+        private void writeHeader(byte type, int tick) throws IOException {
+            out.writeByte(type);
+            // The first event carries its absolute tick
+            writeVarInt(lastTick < 0 ? tick : Math.max(0, tick - lastTick));
+            lastTick = tick;
+        }
+
+        private void writePosition(String dimension, float x, float y, float z) throws IOException {
+            writeString(dimension);
+            out.writeFloat(x);
+            out.writeFloat(y);
+            out.writeFloat(z);
+        }
+
+        private void writeUuid(UUID uuid) throws IOException {
+            UUID value = uuid != null ? uuid : NO_UUID;
+            out.writeLong(value.getMostSignificantBits());
+            out.writeLong(value.getLeastSignificantBits());
+        }
+
+        private void writeInline(String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        }
+
+        // Only for fields drawn from a small set, the table is never trimmed
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeVarInt(index);
+                return;
+            }
+            index = strings.size() + 1;
+            strings.put(value, index);
+            writeVarInt(index);
+            out.writeUTF(value);
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    public static class Reader implements Closeable {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+        private int tick = 0;
+        private boolean first = true;
+
+        public Reader(Path file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))));
+            if (in.readInt() != MAGIC) {
+                in.close();
+                throw new IOException("Not a Beast Master workload trace: " + file.getFileName());
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                in.close();
+                throw new IOException("Unsupported trace version " + version);
+            }
+            strings.add(null);
+        }
+
+        // Null at the end of the trace. A trace cut short by a crash ends at its last complete event.
+        public Event next() throws IOException {
+            int type;
+            try {
+                type = in.read();
+                if (type < 0) return null;
+
+                int delta = readVarInt();
+                tick = first ? delta : tick + delta;
+                first = false;
+
+                return switch (type) {
+                    case USE_ENTITY -> new UseEntity(tick, readUuid(), readUuid(), readString(), readUuid(),
+                        readString(), in.readFloat(), in.readFloat(), in.readFloat());
+                    case ENTITY_LOAD -> new EntityLoad(tick, readUuid(), readUuid(), readString(), readString(),
+                        in.readFloat(), in.readFloat(), in.readFloat(), readInline());
+                    case COMMAND -> new Command(tick, readUuid(), readInline());
+                    case DAMAGE -> new Damage(tick, readUuid(), readString(), readUuid(), in.readFloat(),
+                        in.readFloat(), readString(), readUuid());
+                    default -> throw new IOException("Unknown event type " + type);
+                };
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        private UUID readUuid() throws IOException {
+            UUID uuid = new UUID(in.readLong(), in.readLong());
+            return uuid.equals(NO_UUID) ? null : uuid;
+        }
+
+        private String readInline() throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+
+        private String readString() throws IOException {
+            int index = readVarInt();
+            if (index < strings.size()) {
+                return strings.get(index);
+            }
+            if (index != strings.size()) {
+                throw new IOException("Corrupt string table at index " + index);
+            }
+            String value = in.readUTF();
+            strings.add(value);
+            return value;
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = in.readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("VarInt too long");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
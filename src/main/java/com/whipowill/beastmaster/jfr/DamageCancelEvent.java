@@ -0,0 +1,23 @@
+package com.whipowill.beastmaster.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("beastmaster.DamageCancel")
+@Label("Damage Cancelled")
+@Category("Beast Master")
+@Description("Damage to a companion cancelled by the damage hook")
+public class DamageCancelEvent extends Event {
+    @Label("Entity Type")
+    public String entityType;
+
+    @Label("Reason")
+    @Description("friendly-fire or immortal")
+    public String reason;
+
+    @Label("Amount")
+    public float amount;
+}
@@ -0,0 +1,16 @@
+package com.whipowill.beastmaster.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("beastmaster.RegenSweep")
+@Label("Regen Sweep")
+@Category("Beast Master")
+@Description("Periodic pass applying regeneration and injury behaviour to loaded companions")
+public class RegenSweepEvent extends Event {
+    @Label("Companions")
+    public int companions;
+}
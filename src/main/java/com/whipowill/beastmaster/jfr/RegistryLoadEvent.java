@@ -0,0 +1,25 @@
+package com.whipowill.beastmaster.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("beastmaster.RegistryLoad")
+@Label("Registry Load")
+@Category("Beast Master")
+@Description("Companion registry records read from the world save")
+public class RegistryLoadEvent extends Event {
+    @Label("Storage")
+    @Description("vanilla for the PersistentState file, shard for one owner's async file")
+    public String storage;
+
+    @Label("Records")
+    public int records;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,30 @@
+package com.whipowill.beastmaster.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("beastmaster.RegistrySave")
+@Label("Registry Save")
+@Category("Beast Master")
+@Description("Companion registry written for a world save")
+public class RegistrySaveEvent extends Event {
+    @Label("Storage")
+    @Description("vanilla for the PersistentState file, async-delta for the server-thread part of an async save, " +
+        "async-write for the background shard writes")
+    public String storage;
+
+    @Label("Records")
+    public int records;
+
+    @Label("Shards")
+    public int shards;
+
+    @Label("Size")
+    @Description("Snapshot bytes handed over, or file bytes written for async-write")
+    @DataAmount
+    public long bytes;
+}
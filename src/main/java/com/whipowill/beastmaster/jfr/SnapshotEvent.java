@@ -0,0 +1,29 @@
+package com.whipowill.beastmaster.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("beastmaster.Snapshot")
+@Label("Companion Snapshot")
+@Category("Beast Master")
+@Description("Entity NBT serialized and deflated into the companion registry")
+public class SnapshotEvent extends Event {
+    @Label("Entity Type")
+    public String entityType;
+
+    @Label("Source")
+    @Description("live for a loaded entity, scan for one read from a region file")
+    public String source;
+
+    @Label("Compressed Size")
+    @DataAmount
+    public long compressedBytes;
+
+    @Label("Raw Size")
+    @DataAmount
+    public long rawBytes;
+}
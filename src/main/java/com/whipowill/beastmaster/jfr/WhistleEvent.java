@@ -0,0 +1,46 @@
+package com.whipowill.beastmaster.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// One whistle from command to the last companion arriving; the duration spans every tick of the summon job
+@Name("beastmaster.Whistle")
+@Label("Whistle")
+@Category("Beast Master")
+@Description("A pet or mount whistle, from the command until every target was processed")
+public class WhistleEvent extends Event {
+    @Label("Owner")
+    public String owner;
+
+    @Label("Role")
+    @Description("pet or mount")
+    public String role;
+
+    @Label("Named")
+    @Description("Whether only companions matching a name were called")
+    public boolean named;
+
+    @Label("Targets")
+    public int targets;
+
+    @Label("Loaded")
+    @Description("Targets that were already loaded and were moved to the player")
+    public int loaded;
+
+    @Label("Retrieved")
+    @Description("Targets fetched by loading their chunk")
+    public int retrieved;
+
+    @Label("Materialized")
+    @Description("Targets recreated from their stored snapshot")
+    public int materialized;
+
+    @Label("Failed")
+    public int failed;
+
+    @Label("Dead")
+    public int dead;
+}
@@ -0,0 +1,24 @@
+package com.whipowill.beastmaster.mixins;
+
+import com.whipowill.beastmaster.WorkloadRecorder;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+// Feeds /beast commands to the workload recorder; every command typed or run goes through here
+@Mixin(CommandManager.class)
+public abstract class CommandManagerMixin {
+
+    @Inject(method = "execute", at = @At("HEAD"))
+    private void onExecute(ServerCommandSource source, String command, CallbackInfoReturnable<Integer> cir) {
+        if (!WorkloadRecorder.isRecording()) return;
+
+        String trimmed = command.startsWith("/") ? command.substring(1) : command;
+        if (trimmed.startsWith("beast ")) {
+            WorkloadRecorder.recordCommand(source, trimmed);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.whipowill.beastmaster.mixins;
+
+import com.whipowill.beastmaster.CompanionState;
+import com.whipowill.beastmaster.CompanionTracker;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.LivingEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+// Saddled pigs count as owned by their rider, so ownership changes when someone gets on or off
+@Mixin(Entity.class)
+public abstract class EntityPassengerMixin {
+
+    @Inject(method = "addPassenger", at = @At("TAIL"))
+    private void onAddPassenger(Entity passenger, CallbackInfo ci) {
+        if ((Object)this instanceof LivingEntity) {
+            CompanionState.invalidate((Entity)(Object)this);
+            CompanionTracker.refresh((Entity)(Object)this);
+        }
+    }
+
+    @Inject(method = "removePassenger", at = @At("TAIL"))
+    private void onRemovePassenger(Entity passenger, CallbackInfo ci) {
+        if ((Object)this instanceof LivingEntity) {
+            CompanionState.invalidate((Entity)(Object)this);
+            CompanionTracker.refresh((Entity)(Object)this);
+        }
+    }
+}
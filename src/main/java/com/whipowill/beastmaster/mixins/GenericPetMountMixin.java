@@ -1,13 +1,20 @@
 package com.whipowill.beastmaster.mixins;
 
-import com.whipowill.beastmaster.BeastMasterMod;
 import com.whipowill.beastmaster.BeastConfig;
-import net.minecraft.entity.Entity;
+import com.whipowill.beastmaster.BeastMasterMod;
+import com.whipowill.beastmaster.CompanionHolder;
+import com.whipowill.beastmaster.CompanionState;
+import com.whipowill.beastmaster.DamageRules;
+import com.whipowill.beastmaster.PerfMonitor;
+import com.whipowill.beastmaster.WorkloadRecorder;
+import com.whipowill.beastmaster.jfr.DamageCancelEvent;
+import net.minecraft.entity.EntityType;
 import net.minecraft.entity.LivingEntity;
 import net.minecraft.entity.damage.DamageSource;
 import net.minecraft.entity.passive.WolfEntity;
 import net.minecraft.entity.player.PlayerEntity;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
@@ -15,61 +22,94 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import java.util.UUID;
 
 @Mixin(LivingEntity.class)
-public abstract class GenericPetMountMixin {
+public abstract class GenericPetMountMixin implements CompanionHolder {
+
+    @Unique
+    private CompanionState beastmaster$companionState;
+
+    @Override
+    public CompanionState beastmaster$getCompanionState() {
+        return beastmaster$companionState;
+    }
+
+    @Override
+    public void beastmaster$setCompanionState(CompanionState state) {
+        beastmaster$companionState = state;
+    }
 
     @Inject(method = "damage", at = @At("HEAD"), cancellable = true)
     private void onDamage(DamageSource source, float amount, CallbackInfoReturnable<Boolean> cir) {
-        LivingEntity livingEntity = (LivingEntity)(Object)this;
-        Entity entity = (Entity)(Object)this;
+        if (!BeastMasterMod.handlersEnabled) return;
 
-        // Only process if it's one of our supported entities
-        if (!BeastConfig.isSupportedPet(entity) && !BeastConfig.isSupportedMount(entity)) {
+        // Cached answer for nearly every entity: not one of ours
+        CompanionState state = beastmaster$companionState;
+        if (state != null && state.isCurrent() && !state.isCompanion()) {
+            return;
+        }
+
+        LivingEntity livingEntity = (LivingEntity)(Object)this;
+        // PerfMonitor is server-thread only
+        if (livingEntity.world.isClient) {
+            beastmaster$handleDamage(livingEntity, source, amount, cir);
             return;
         }
 
-        if (BeastMasterMod.isOwned(entity)) {
-            // Check if friendly fire is disabled and damage is from owner
-            if (BeastMasterMod.CONFIG != null &&
-                BeastMasterMod.CONFIG.disableFriendlyFire &&
-                isDamageFromOwner(source, entity)) {
+        PerfMonitor.begin(PerfMonitor.Section.DAMAGE);
+        try {
+            beastmaster$handleDamage(livingEntity, source, amount, cir);
+        } finally {
+            PerfMonitor.end(PerfMonitor.Section.DAMAGE);
+        }
+    }
 
-                //LOGGER.debug("Blocked friendly fire damage to {} from owner", entity.getUuid());
-                cir.setReturnValue(false); // Cancel the damage
-                return;
-            }
+    @Unique
+    private void beastmaster$handleDamage(LivingEntity livingEntity, DamageSource source, float amount, CallbackInfoReturnable<Boolean> cir) {
+        CompanionState state = CompanionState.get(livingEntity);
 
-            boolean isPet = BeastMasterMod.CONFIG != null &&
-                           BeastMasterMod.CONFIG.petImmortal &&
-                           BeastConfig.isSupportedPet(entity);
+        // Only process if it's one of our supported entities
+        if (!state.isCompanion()) {
+            return;
+        }
+        if (WorkloadRecorder.isRecording() && !livingEntity.world.isClient) {
+            WorkloadRecorder.recordDamage(livingEntity, state.ownerUuid, source, amount);
+        }
 
-            boolean isMount = BeastMasterMod.CONFIG != null &&
-                             BeastMasterMod.CONFIG.mountImmortal &&
-                             BeastConfig.isSupportedMount(entity);
+        // One snapshot for the whole decision, even if a reload lands meanwhile
+        BeastConfig config = BeastMasterMod.CONFIG;
+        if (state.owned) {
+            UUID attackerUuid = source.getAttacker() instanceof PlayerEntity attacker ? attacker.getUuid() : null;
+            DamageRules.Outcome outcome = DamageRules.decide(config, state.pet, state.mount, state.ownerUuid,
+                attackerUuid, livingEntity.getHealth(), amount);
 
-            // If immortal and health would drop below 1, cancel the damage
-            if ((isPet || isMount) && livingEntity.getHealth() - amount <= 0) {
+            if (outcome == DamageRules.Outcome.FRIENDLY_FIRE) {
+                cir.setReturnValue(false); // Cancel the damage
+                beastmaster$commitCancelEvent(livingEntity, "friendly-fire", amount);
+            } else if (outcome == DamageRules.Outcome.IMMORTAL) {
                 livingEntity.setHealth(1.0F);
 
                 // For wolves, clear anger when health is low
-                if (BeastMasterMod.CONFIG != null && entity instanceof WolfEntity wolf) {
+                if (livingEntity instanceof WolfEntity wolf) {
                     float healthPercent = (livingEntity.getHealth() / livingEntity.getMaxHealth()) * 100;
-                    if (healthPercent <= BeastMasterMod.CONFIG.healthRequiredToFight) {
+                    if (healthPercent <= config.healthRequiredToFight) {
                         wolf.setAngryAt(null);
                         wolf.setTarget(null);
                     }
                 }
 
                 cir.setReturnValue(false);
+                beastmaster$commitCancelEvent(livingEntity, "immortal", amount);
             }
         }
     }
 
-    private boolean isDamageFromOwner(DamageSource source, Entity entity) {
-        // Check if damage source is the owner
-        if (source.getAttacker() instanceof PlayerEntity attacker) {
-            UUID ownerUuid = BeastMasterMod.getOwnerUuid(entity);
-            return attacker.getUuid().equals(ownerUuid);
-        }
-        return false;
+    @Unique
+    private static void beastmaster$commitCancelEvent(LivingEntity entity, String reason, float amount) {
+        DamageCancelEvent event = new DamageCancelEvent();
+        if (!event.isEnabled()) return;
+
+        event.entityType = EntityType.getId(entity.getType()).toString();
+        event.reason = reason;
+        event.amount = amount;
+        event.commit();
     }
-}
\ No newline at end of file
+}
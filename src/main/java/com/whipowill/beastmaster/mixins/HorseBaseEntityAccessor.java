@@ -0,0 +1,14 @@
+package com.whipowill.beastmaster.mixins;
+
+import net.minecraft.entity.passive.HorseBaseEntity;
+import net.minecraft.inventory.SimpleInventory;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(HorseBaseEntity.class)
+public interface HorseBaseEntityAccessor {
+
+    // Saddle, armor and chest slots, used for snapshot change detection
+    @Accessor("items")
+    SimpleInventory getItems();
+}
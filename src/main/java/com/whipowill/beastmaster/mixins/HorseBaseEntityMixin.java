@@ -0,0 +1,27 @@
+package com.whipowill.beastmaster.mixins;
+
+import com.whipowill.beastmaster.CompanionState;
+import com.whipowill.beastmaster.CompanionTracker;
+import net.minecraft.entity.passive.HorseBaseEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import java.util.UUID;
+
+@Mixin(HorseBaseEntity.class)
+public abstract class HorseBaseEntityMixin {
+
+    @Inject(method = "setOwnerUuid", at = @At("TAIL"))
+    private void onSetOwnerUuid(UUID uuid, CallbackInfo ci) {
+        CompanionState.invalidate((HorseBaseEntity)(Object)this);
+        CompanionTracker.refresh((HorseBaseEntity)(Object)this);
+    }
+
+    @Inject(method = "setTame", at = @At("TAIL"))
+    private void onSetTame(boolean tame, CallbackInfo ci) {
+        CompanionState.invalidate((HorseBaseEntity)(Object)this);
+        CompanionTracker.refresh((HorseBaseEntity)(Object)this);
+    }
+}
@@ -0,0 +1,21 @@
+package com.whipowill.beastmaster.mixins;
+
+import com.whipowill.beastmaster.CompanionState;
+import com.whipowill.beastmaster.CompanionTracker;
+import net.minecraft.entity.passive.PigEntity;
+import net.minecraft.sound.SoundCategory;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+// A saddle makes a pig a supported mount even when pigs aren't listed in the config
+@Mixin(PigEntity.class)
+public abstract class PigEntityMixin {
+
+    @Inject(method = "saddle", at = @At("TAIL"))
+    private void onSaddle(SoundCategory sound, CallbackInfo ci) {
+        CompanionState.invalidate((PigEntity)(Object)this);
+        CompanionTracker.refresh((PigEntity)(Object)this);
+    }
+}
@@ -0,0 +1,27 @@
+package com.whipowill.beastmaster.mixins;
+
+import com.whipowill.beastmaster.CompanionState;
+import com.whipowill.beastmaster.CompanionTracker;
+import net.minecraft.entity.passive.TameableEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import java.util.UUID;
+
+@Mixin(TameableEntity.class)
+public abstract class TameableEntityMixin {
+
+    @Inject(method = "setOwnerUuid", at = @At("TAIL"))
+    private void onSetOwnerUuid(UUID uuid, CallbackInfo ci) {
+        CompanionState.invalidate((TameableEntity)(Object)this);
+        CompanionTracker.refresh((TameableEntity)(Object)this);
+    }
+
+    @Inject(method = "setTamed", at = @At("TAIL"))
+    private void onSetTamed(boolean tamed, CallbackInfo ci) {
+        CompanionState.invalidate((TameableEntity)(Object)this);
+        CompanionTracker.refresh((TameableEntity)(Object)this);
+    }
+}
@@ -0,0 +1,163 @@
+package com.whipowill.beastmaster;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CooldownServiceTest {
+    private static final CooldownService.Category CATEGORY = CooldownService.Category.WHISTLE;
+    // Level boundaries of the wheel, and the longest cooldown it holds
+    private static final int[] BOUNDARY_DELAYS = {1, 255, 256, 257, 16383, 16384, 16385, 1048575, 1048576};
+    private static final int MAX_DELAY = (1 << 26) - 1;
+
+    @BeforeEach
+    void reset() {
+        CooldownService.clear();
+    }
+
+    @Test
+    void expiresExactlyAtLevelBoundaries() {
+        for (int delay : BOUNDARY_DELAYS) {
+            CooldownService.clear();
+            assertExpiresAfter(delay);
+        }
+    }
+
+    // Started off a slot boundary, so the expiry wraps around the lower levels before it cascades
+    @Test
+    void expiresExactlyWhenStartedMidWheel() {
+        for (int offset : new int[] {1, 200, 255, 16000, 1048000}) {
+            for (int delay : BOUNDARY_DELAYS) {
+                CooldownService.clear();
+                advance(offset);
+                assertExpiresAfter(delay);
+            }
+        }
+    }
+
+    @Test
+    void longerCooldownsAreCappedAtMaxDelay() {
+        UUID key = UUID.randomUUID();
+        CooldownService.start(CATEGORY, key, Integer.MAX_VALUE);
+        assertEquals(MAX_DELAY, CooldownService.getRemainingTicks(CATEGORY, key));
+
+        advance(MAX_DELAY - 1);
+        assertTrue(CooldownService.isActive(CATEGORY, key));
+        CooldownService.tick();
+        assertFalse(CooldownService.isActive(CATEGORY, key));
+    }
+
+    // Entries sharing a slot expire independently of each other
+    @Test
+    void aliasedSlotsOnlyExpireDueEntries() {
+        UUID early = UUID.randomUUID();
+        UUID late = UUID.randomUUID();
+        CooldownService.start(CATEGORY, early, 10);
+        CooldownService.start(CATEGORY, late, 10 + 256);
+
+        advance(10);
+        assertFalse(CooldownService.isActive(CATEGORY, early));
+        assertTrue(CooldownService.isActive(CATEGORY, late));
+        advance(256);
+        assertFalse(CooldownService.isActive(CATEGORY, late));
+    }
+
+    @Test
+    void cancelRemovesTheCooldown() {
+        UUID key = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        CooldownService.start(CATEGORY, key, 100);
+        CooldownService.start(CATEGORY, other, 100);
+
+        CooldownService.cancel(CATEGORY, key);
+        assertFalse(CooldownService.isActive(CATEGORY, key));
+        assertEquals(0, CooldownService.getRemainingTicks(CATEGORY, key));
+        assertEquals(1, CooldownService.size(CATEGORY));
+
+        advance(100);
+        assertFalse(CooldownService.isActive(CATEGORY, other));
+        assertEquals(0, CooldownService.size(CATEGORY));
+    }
+
+    @Test
+    void startWithoutTicksCancels() {
+        UUID key = UUID.randomUUID();
+        CooldownService.start(CATEGORY, key, 100);
+        assertTrue(CooldownService.start(CATEGORY, key, 0));
+        assertFalse(CooldownService.isActive(CATEGORY, key));
+    }
+
+    @Test
+    void restartMovesTheExpiry() {
+        UUID shortened = UUID.randomUUID();
+        UUID extended = UUID.randomUUID();
+        CooldownService.start(CATEGORY, shortened, 20000);
+        CooldownService.start(CATEGORY, extended, 50);
+
+        advance(10);
+        CooldownService.start(CATEGORY, shortened, 5);
+        CooldownService.start(CATEGORY, extended, 300);
+        assertEquals(2, CooldownService.size(CATEGORY));
+
+        advance(4);
+        assertTrue(CooldownService.isActive(CATEGORY, shortened));
+        CooldownService.tick();
+        assertFalse(CooldownService.isActive(CATEGORY, shortened));
+
+        // Past the original expiry, still running on the new one
+        advance(300 - 5 - 1);
+        assertTrue(CooldownService.isActive(CATEGORY, extended));
+        CooldownService.tick();
+        assertFalse(CooldownService.isActive(CATEGORY, extended));
+    }
+
+    @Test
+    void categoriesAreIndependent() {
+        UUID key = UUID.randomUUID();
+        CooldownService.start(CooldownService.Category.BUCK, key, 40);
+        assertTrue(CooldownService.isActive(CooldownService.Category.BUCK, key));
+        assertFalse(CooldownService.isActive(CooldownService.Category.BUCK_MESSAGE, key));
+    }
+
+    @Test
+    void categoryIsCapped() {
+        int cap = 16384;
+        for (int i = 0; i < cap; i++) {
+            assertTrue(CooldownService.start(CATEGORY, new UUID(0, i), 100));
+        }
+        assertFalse(CooldownService.start(CATEGORY, UUID.randomUUID(), 100));
+        assertEquals(cap, CooldownService.size(CATEGORY));
+
+        // Restarting a key that's already there doesn't need room, and other categories aren't affected
+        assertTrue(CooldownService.start(CATEGORY, new UUID(0, 0), 200));
+        assertTrue(CooldownService.start(CooldownService.Category.FIND, UUID.randomUUID(), 100));
+
+        advance(100);
+        assertEquals(1, CooldownService.size(CATEGORY));
+        assertTrue(CooldownService.start(CATEGORY, UUID.randomUUID(), 100));
+    }
+
+    private static void assertExpiresAfter(int delay) {
+        UUID key = UUID.randomUUID();
+        CooldownService.start(CATEGORY, key, delay);
+        assertEquals(delay, CooldownService.getRemainingTicks(CATEGORY, key));
+
+        advance(delay - 1);
+        assertTrue(CooldownService.isActive(CATEGORY, key), "expired early, delay " + delay);
+        assertEquals(1, CooldownService.getRemainingTicks(CATEGORY, key));
+        CooldownService.tick();
+        assertFalse(CooldownService.isActive(CATEGORY, key), "still active, delay " + delay);
+        assertEquals(0, CooldownService.size(CATEGORY));
+    }
+
+    private static void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            CooldownService.tick();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.whipowill.beastmaster;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.world.World;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Name lookups against a registry filled through registerSnapshot, without a running server
+class PackManagerNameTest {
+    private final UUID owner = UUID.randomUUID();
+    private PackManager manager;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+    }
+
+    @BeforeEach
+    void fill() {
+        manager = new PackManager();
+        register("Rex", true);
+        register("rex", true);
+        register("  Rexy ", true);
+        register("Max", true);
+        register("R.x", true);
+        register(null, true);
+        register(null, true);
+        register("Noname", true);
+        register("Rex", false);
+    }
+
+    @Test
+    void exactNamesIgnoreCaseAndSurroundingSpaces() {
+        assertEquals(2, find("REX").size());
+        assertEquals(1, find(" rexy").size());
+        assertEquals(1, manager.findByName(owner, false, "rex").size());
+        assertTrue(find("Re").isEmpty());
+        assertTrue(manager.findByName(UUID.randomUUID(), true, "Rex").isEmpty());
+    }
+
+    @Test
+    void trailingStarIsAPrefixMatch() {
+        assertEquals(Set.of("Rex", "rex", "  Rexy "), names(find("rex*")));
+        assertEquals(Set.of("Rex", "rex", "  Rexy ", "R.x"), names(find("r*")));
+        // A lone star calls every pet, named or not
+        assertEquals(8, find("*").size());
+    }
+
+    @Test
+    void globsMatchTheWholeName() {
+        assertEquals(Set.of("Rex", "rex", "R.x"), names(find("r?x")));
+        assertEquals(Set.of("Rex", "rex", "  Rexy "), names(find("?ex*")));
+        assertEquals(Set.of("Rex", "rex", "R.x", "Max"), names(find("*x")));
+        assertEquals(Set.of("  Rexy "), names(find("*y")));
+    }
+
+    // Only * and ? are special; a dot in a name is just text
+    @Test
+    void otherCharactersAreLiteral() {
+        assertEquals(Set.of("R.x"), names(find("r.x")));
+        assertEquals(Set.of("R.x"), names(find("r.*")));
+        assertTrue(find("r.x?").isEmpty());
+    }
+
+    @Test
+    void unnamedCompanionsAnswerToTheirListName() {
+        // Both unnamed pets, plus the one actually called Noname
+        assertEquals(3, find("noname").size());
+        assertEquals(2, find("Unknown").size());
+        assertTrue(manager.findByName(owner, false, "noname").isEmpty());
+    }
+
+    // Wildcards see unnamed companions as an empty name, never as the key they're indexed under
+    @Test
+    void unnamedCompanionsMatchWildcardsAsAnEmptyName() {
+        assertEquals(Set.of("Noname"), names(find("n*")));
+        assertEquals(Set.of("Noname"), names(find("*name")));
+        assertTrue(find("?").isEmpty());
+        assertTrue(find("?*").stream().allMatch(data -> data.customName != null));
+        assertEquals(List.of("Max", "Noname", "Noname", "R.x", "Rex", "Rexy"),
+            manager.getNameSnapshot(owner, true).stream().sorted().toList());
+    }
+
+    @Test
+    void untrackedCompanionsLeaveTheIndex() {
+        for (PackManager.EntityData data : find("rex")) {
+            manager.untrackEntity(data.entityUuid);
+        }
+        assertTrue(find("rex").isEmpty());
+        assertEquals(Set.of("  Rexy "), names(find("rex*")));
+    }
+
+    private List<PackManager.EntityData> find(String query) {
+        return manager.findByName(owner, true, query);
+    }
+
+    private void register(String name, boolean isPet) {
+        NbtCompound nbt = new NbtCompound();
+        nbt.putString("id", isPet ? "minecraft:wolf" : "minecraft:horse");
+        assertTrue(manager.registerSnapshot(UUID.randomUUID(), owner, World.OVERWORLD, 0, 64, 0, isPet, nbt, name));
+    }
+
+    private static Set<String> names(List<PackManager.EntityData> entities) {
+        Set<String> names = new HashSet<>();
+        for (PackManager.EntityData data : entities) {
+            names.add(data.customName);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,131 @@
+package com.whipowill.beastmaster;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WorkloadTraceTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsEveryEventType() throws IOException {
+        UUID player = UUID.randomUUID();
+        UUID wolf = UUID.randomUUID();
+        List<WorkloadTrace.Event> events = List.of(
+            new WorkloadTrace.EntityLoad(1200, wolf, player, "minecraft:wolf", "minecraft:overworld", 10.5f, 64, -3.25f, "Rex"),
+            new WorkloadTrace.UseEntity(1200, player, wolf, "minecraft:wolf", player, "minecraft:overworld", 10.5f, 64, -3.25f),
+            new WorkloadTrace.Command(1260, player, "beast pet whistle Rex*"),
+            new WorkloadTrace.Damage(1300, wolf, "minecraft:wolf", player, 20, 4, "player", player),
+            new WorkloadTrace.Command(1300, player, "beast pet list"),
+            // 300 000 ticks later, so the delta takes a multi-byte varint
+            new WorkloadTrace.Damage(301300, wolf, "minecraft:wolf", player, 16, 2.5f, "mob", UUID.randomUUID())
+        );
+
+        assertEquals(events, roundTrip(events));
+    }
+
+    @Test
+    void roundTripsMissingValues() throws IOException {
+        List<WorkloadTrace.Event> events = List.of(
+            new WorkloadTrace.EntityLoad(0, UUID.randomUUID(), null, null, null, 0, 0, 0, null),
+            new WorkloadTrace.Command(5, null, null),
+            new WorkloadTrace.Damage(5, UUID.randomUUID(), "minecraft:horse", null, 1, 1, null, null),
+            new WorkloadTrace.EntityLoad(7, UUID.randomUUID(), UUID.randomUUID(), "minecraft:horse", "minecraft:the_nether", 1, 2, 3, "")
+        );
+
+        assertEquals(events, roundTrip(events));
+    }
+
+    // Names and commands are written inline; repeating them must not go through the string table
+    @Test
+    void roundTripsRepeatedInlineStrings() throws IOException {
+        UUID player = UUID.randomUUID();
+        List<WorkloadTrace.Event> events = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            events.add(new WorkloadTrace.Command(i, player, i % 2 == 0 ? "beast pet list" : "beast mount list"));
+            events.add(new WorkloadTrace.EntityLoad(i, UUID.randomUUID(), player, "minecraft:cat",
+                "minecraft:overworld", i, 64, i, "Cat " + (i % 3)));
+        }
+
+        assertEquals(events, roundTrip(events));
+    }
+
+    @Test
+    void truncatedTraceEndsAtLastCompleteEvent() throws IOException {
+        UUID player = UUID.randomUUID();
+        Path file = directory.resolve("truncated.bmtrace");
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(0x424D5754);
+            out.writeShort(2);
+            out.writeByte(3);
+            out.writeByte(7);
+            out.writeLong(player.getMostSignificantBits());
+            out.writeLong(player.getLeastSignificantBits());
+            out.writeBoolean(true);
+            out.writeUTF("beast pet find");
+            // A second event cut off after its header
+            out.writeByte(3);
+            out.writeByte(1);
+            out.writeLong(player.getMostSignificantBits());
+        }
+
+        try (WorkloadTrace.Reader reader = new WorkloadTrace.Reader(file)) {
+            assertEquals(new WorkloadTrace.Command(7, player, "beast pet find"), reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("other.bmtrace");
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(0x12345678);
+        }
+        assertThrows(IOException.class, () -> new WorkloadTrace.Reader(file));
+
+        Path old = directory.resolve("old.bmtrace");
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(old)))) {
+            out.writeInt(0x424D5754);
+            out.writeShort(1);
+        }
+        assertThrows(IOException.class, () -> new WorkloadTrace.Reader(old));
+
+        Path future = directory.resolve("future.bmtrace");
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(future)))) {
+            out.writeInt(0x424D5754);
+            out.writeShort(99);
+        }
+        assertThrows(IOException.class, () -> new WorkloadTrace.Reader(future));
+    }
+
+    private List<WorkloadTrace.Event> roundTrip(List<WorkloadTrace.Event> events) throws IOException {
+        Path file = directory.resolve("trace.bmtrace");
+        try (WorkloadTrace.Writer writer = new WorkloadTrace.Writer(file)) {
+            for (WorkloadTrace.Event event : events) {
+                writer.write(event);
+            }
+        }
+
+        List<WorkloadTrace.Event> read = new ArrayList<>();
+        try (WorkloadTrace.Reader reader = new WorkloadTrace.Reader(file)) {
+            WorkloadTrace.Event event;
+            while ((event = reader.next()) != null) {
+                read.add(event);
+            }
+        }
+        return read;
+    }
+}